@@ -0,0 +1,20 @@
+package com.adama.api.benchmark;
+
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.adama.api.domain.util.domain.abst.delete.DeleteEntityAbstract;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * An entity read by the repository benchmarks
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Document(collection = "benchmark_entity")
+public class BenchmarkEntity extends DeleteEntityAbstract {
+	private static final long serialVersionUID = 1L;
+	private String name;
+	private Integer quantity;
+}
@@ -0,0 +1,30 @@
+package com.adama.api.benchmark;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * A row of an excel export, shaped as the DTOs of the resources
+ */
+@Data
+public class BenchmarkRow {
+	private String id;
+	private String name;
+	private String code;
+	private Integer quantity;
+	private Double price;
+	private Boolean active;
+	private ZonedDateTime createdDate;
+	private Address address;
+	private List<String> tags;
+
+	@Data
+	public static class Address {
+		private String street;
+		private String city;
+		private String zipCode;
+		private String country;
+	}
+}
@@ -0,0 +1,107 @@
+package com.adama.api.benchmark;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adama.api.service.excel.util.BeanFlattener;
+import com.adama.api.service.excel.util.FlatPath;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.wnameless.json.flattener.JsonFlattener;
+import com.github.wnameless.json.unflattener.JsonUnflattener;
+
+/**
+ * Compare the flattening of the excel rows: the json written and parsed by
+ * JsonFlattener and JsonUnflattener, as before, against the
+ * {@link BeanFlattener} for the exports and the {@link FlatPath} for the
+ * imports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlatteningBenchmark {
+	private ObjectMapper mapper;
+	private BeanFlattener beanFlattener;
+	private BenchmarkRow row;
+	// the cells of an imported row, by dotted path
+	private ObjectNode flatNode;
+	private List<FlatPath> pathList;
+	private List<JsonNode> valueList;
+
+	@Setup
+	public void setup() {
+		mapper = new ObjectMapper().registerModule(new JavaTimeModule()).disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+		beanFlattener = new BeanFlattener(mapper);
+		BenchmarkRow.Address address = new BenchmarkRow.Address();
+		address.setStreet("12 rue de la Paix");
+		address.setCity("Paris");
+		address.setZipCode("75002");
+		address.setCountry("France");
+		row = new BenchmarkRow();
+		row.setId("5a1d8f0e2c3b4a0012345678");
+		row.setName("Product name");
+		row.setCode("PRD-0001");
+		row.setQuantity(42);
+		row.setPrice(19.99);
+		row.setActive(true);
+		row.setCreatedDate(ZonedDateTime.now());
+		row.setAddress(address);
+		row.setTags(Arrays.asList("first", "second", "third"));
+		flatNode = mapper.createObjectNode();
+		pathList = new ArrayList<>();
+		valueList = new ArrayList<>();
+		for (Map.Entry<String, Object> entry : beanFlattener.flatten(row).entrySet()) {
+			JsonNode value = mapper.valueToTree(entry.getValue());
+			flatNode.set(entry.getKey(), value);
+			pathList.add(FlatPath.parse(entry.getKey()));
+			valueList.add(value);
+		}
+	}
+
+	@Benchmark
+	public Map<String, Object> exportWithJsonFlattener() throws JsonProcessingException {
+		return new JsonFlattener(mapper.writeValueAsString(row)).flattenAsMap();
+	}
+
+	@Benchmark
+	public Map<String, Object> exportWithBeanFlattener() {
+		return beanFlattener.flatten(row);
+	}
+
+	@Benchmark
+	public BenchmarkRow importWithJsonUnflattener() throws IOException {
+		return mapper.readValue(JsonUnflattener.unflatten(flatNode.toString()), BenchmarkRow.class);
+	}
+
+	@Benchmark
+	public BenchmarkRow importWithFlatPath() throws JsonProcessingException {
+		ObjectNode root = mapper.createObjectNode();
+		for (int i = 0; i < pathList.size(); i++) {
+			pathList.get(i).set(root, valueList.get(i));
+		}
+		return mapper.treeToValue(root, BenchmarkRow.class);
+	}
+}
@@ -0,0 +1,95 @@
+package com.adama.api.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Forward the connections of the driver to a mongo server, each read from the
+ * driver is delayed as by a remote server
+ */
+public class LatencyProxy implements Closeable {
+	private final ServerSocket serverSocket;
+	private final InetSocketAddress target;
+	private final long latencyInMillis;
+	private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "Latency-Proxy");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * @param target
+	 *            the address of the mongo server
+	 * @param latencyInMillis
+	 *            the delay of each request
+	 * @throws IOException
+	 */
+	public LatencyProxy(InetSocketAddress target, long latencyInMillis) throws IOException {
+		this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		this.target = target;
+		this.latencyInMillis = latencyInMillis;
+		executor.execute(this::accept);
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket client = serverSocket.accept();
+				Socket server = new Socket(target.getAddress(), target.getPort());
+				client.setTcpNoDelay(true);
+				server.setTcpNoDelay(true);
+				executor.execute(() -> forward(client, server, latencyInMillis));
+				executor.execute(() -> forward(server, client, 0));
+			} catch (IOException e) {
+				// the proxy is closed
+			}
+		}
+	}
+
+	private static void forward(Socket from, Socket to, long delayInMillis) {
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				if (delayInMillis > 0) {
+					Thread.sleep(delayInMillis);
+				}
+				out.write(buffer, 0, read);
+				out.flush();
+			}
+		} catch (IOException e) {
+			// one of the sockets is closed
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			closeQuietly(from);
+			closeQuietly(to);
+		}
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// already closed
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,176 @@
+package com.adama.api.benchmark;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoDbFactory;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.repository.query.MongoEntityInformation;
+import org.springframework.data.mongodb.repository.support.MappingMongoEntityInformation;
+
+import com.adama.api.repository.util.page.PageCountExecutor;
+import com.adama.api.repository.util.repository.impl.AdamaMongoRepositoryImpl;
+import com.adama.api.util.date.JSR310DateConverters.DateToZonedDateTimeConverter;
+import com.adama.api.util.date.JSR310DateConverters.ZonedDateTimeToDateConverter;
+import com.mongodb.MongoClient;
+import com.mongodb.ServerAddress;
+
+/**
+ * Read the pages of the repository with their total, the requests to mongo
+ * delayed by a {@link LatencyProxy} as for a remote server: the count run
+ * after the page as before, the count run on the {@link PageCountExecutor}
+ * while the page is read, and the count read from the count cache.
+ * 
+ * It needs a mongo server, given by -p mongoAddress=host:port, whose
+ * adama-benchmark database is written.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class PageCountBenchmark {
+	private static final String DATABASE_NAME = "adama-benchmark";
+	@Param({ "localhost:27017" })
+	private String mongoAddress;
+	@Param({ "5" })
+	private long latencyInMillis;
+	@Param({ "10000" })
+	private int documentCount;
+	private LatencyProxy latencyProxy;
+	private MongoClient mongoClient;
+	private ExecutorService countExecutor;
+	private AdamaMongoRepositoryImpl<BenchmarkEntity, String> sequentialRepository;
+	private AdamaMongoRepositoryImpl<BenchmarkEntity, String> concurrentRepository;
+	private AdamaMongoRepositoryImpl<BenchmarkEntity, String> cachedRepository;
+	private PageRequest pageRequest = new PageRequest(3, 20);
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		ServerAddress serverAddress = new ServerAddress(mongoAddress);
+		latencyProxy = new LatencyProxy(new InetSocketAddress(serverAddress.getHost(), serverAddress.getPort()), latencyInMillis);
+		mongoClient = new MongoClient(new ServerAddress("localhost", latencyProxy.getPort()));
+		SimpleMongoDbFactory mongoDbFactory = new SimpleMongoDbFactory(mongoClient, DATABASE_NAME);
+		CustomConversions conversions = new CustomConversions(Arrays.asList(ZonedDateTimeToDateConverter.INSTANCE, DateToZonedDateTimeConverter.INSTANCE));
+		MongoMappingContext mappingContext = new MongoMappingContext();
+		mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+		mappingContext.setInitialEntitySet(Collections.singleton(BenchmarkEntity.class));
+		mappingContext.afterPropertiesSet();
+		MappingMongoConverter converter = new MappingMongoConverter(new DefaultDbRefResolver(mongoDbFactory), mappingContext);
+		converter.setCustomConversions(conversions);
+		converter.afterPropertiesSet();
+		MongoTemplate mongoTemplate = new MongoTemplate(mongoDbFactory, converter);
+		@SuppressWarnings("unchecked")
+		MongoEntityInformation<BenchmarkEntity, String> entityInformation = new MappingMongoEntityInformation<>(
+				(MongoPersistentEntity<BenchmarkEntity>) mappingContext.getPersistentEntity(BenchmarkEntity.class));
+		mongoTemplate.dropCollection(BenchmarkEntity.class);
+		List<BenchmarkEntity> entityList = new ArrayList<>(documentCount);
+		for (int i = 0; i < documentCount; i++) {
+			BenchmarkEntity entity = new BenchmarkEntity();
+			entity.setName("name " + i);
+			entity.setQuantity(i);
+			entityList.add(entity);
+		}
+		mongoTemplate.insertAll(entityList);
+		countExecutor = PageCountExecutor.create(8, 1000);
+		sequentialRepository = new AdamaMongoRepositoryImpl<>(entityInformation, mongoTemplate);
+		// the count is run by the caller before the page, one after the other
+		// as before
+		sequentialRepository.setCountExecutor(new CallerExecutor());
+		concurrentRepository = new AdamaMongoRepositoryImpl<>(entityInformation, mongoTemplate);
+		concurrentRepository.setCountExecutor(countExecutor);
+		cachedRepository = new AdamaMongoRepositoryImpl<>(entityInformation, mongoTemplate);
+		cachedRepository.setCountExecutor(countExecutor);
+		cachedRepository.setCountCacheTimeToLiveInMillis(TimeUnit.MINUTES.toMillis(10));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		countExecutor.shutdownNow();
+		mongoClient.close();
+		latencyProxy.close();
+	}
+
+	@Benchmark
+	public Page<BenchmarkEntity> sequentialCount() {
+		return sequentialRepository.findAll(pageRequest);
+	}
+
+	@Benchmark
+	public Page<BenchmarkEntity> concurrentCount() {
+		return concurrentRepository.findAll(pageRequest);
+	}
+
+	@Benchmark
+	public Page<BenchmarkEntity> cachedCount() {
+		return cachedRepository.findAll(pageRequest);
+	}
+
+	/**
+	 * Run the tasks in the thread submitting them, the future is done when it
+	 * is returned
+	 */
+	private static class CallerExecutor extends AbstractExecutorService {
+		private volatile boolean shutdown;
+
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+
+		@Override
+		public void shutdown() {
+			shutdown = true;
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			shutdown = true;
+			return Collections.emptyList();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return shutdown;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return shutdown;
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) {
+			return shutdown;
+		}
+	}
+}
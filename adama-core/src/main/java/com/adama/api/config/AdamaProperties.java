@@ -3,6 +3,9 @@ package com.adama.api.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.web.cors.CorsConfiguration;
 
+import com.adama.api.repository.util.page.CountFallback;
+import com.adama.api.repository.util.page.CountStrategy;
+
 import lombok.Data;
 
 /**
@@ -23,6 +26,8 @@ public class AdamaProperties {
 	private final CorsConfiguration cors = new CorsConfiguration();
 	private final S3Configuration s3 = new S3Configuration();
 	private final IonicConfiguration ionic = new IonicConfiguration();
+	private final Mongo mongo = new Mongo();
+	private final Excel excel = new Excel();
 
 	@Data
 	public static class Http {
@@ -66,6 +71,8 @@ public class AdamaProperties {
 		private int corePoolSize = 2;
 		private int maxPoolSize = 50;
 		private int queueCapacity = 10000;
+		// the timeout of the async requests, as the streamed excel exports
+		private long requestTimeoutInMillis = 600000;
 	}
 
 	@Data
@@ -94,4 +101,37 @@ public class AdamaProperties {
 		private String apiKey;
 		private String profile;
 	}
+
+	@Data
+	public static class Mongo {
+		private IndexMode indexMode = IndexMode.VERIFY;
+		// a full scan of the collections, only run with the CREATE index mode
+		private boolean writeMissingSortKeys = false;
+		private long slowQueryThresholdInMillis = 500;
+		private boolean explainSlowQueries = true;
+		private int identityMapMaxSize = 10000;
+		private int snapshotMaxSize = 10000;
+		private long countTimeoutInMillis = 10000;
+		private CountFallback countFallback = CountFallback.ERROR;
+		// ESTIMATED_WHEN_UNFILTERED also counts the deleted entities
+		private CountStrategy countStrategy = CountStrategy.EXACT;
+		// 0 disables the count cache
+		private long countCacheTimeToLiveInMillis = 0;
+		private int countCacheMaxSize = 1000;
+		// the saved lists skip the events of the template
+		private boolean bulkWrite = false;
+
+		public enum IndexMode {
+			CREATE, VERIFY, NONE
+		}
+	}
+
+	@Data
+	public static class Excel {
+		private int rowAccessWindowSize = 100;
+		private boolean compressTempFiles = true;
+		private int columnWidthSampleRows = 0;
+		private int maxColumnWidth = 255;
+		private int importBatchSize = 500;
+	}
 }
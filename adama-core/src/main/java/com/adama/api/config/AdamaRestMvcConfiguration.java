@@ -2,21 +2,43 @@ package com.adama.api.config;
 
 import java.util.List;
 
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
 import com.adama.api.domain.util.domain.abst.audit.AuditingEntityAbstract;
 
 @Configuration
 public class AdamaRestMvcConfiguration extends WebMvcConfigurerAdapter {
+	@Inject
+	private AdamaProperties adamaProperties;
+	@Inject
+	@Qualifier("taskExecutor")
+	private AsyncTaskExecutor taskExecutor;
+
 	@Override
 	public void addArgumentResolvers(List<HandlerMethodArgumentResolver> argumentResolvers) {
 		PageableHandlerMethodArgumentResolver resolver = new PageableHandlerMethodArgumentResolver();
 		resolver.setFallbackPageable(new PageRequest(0, 10, new Sort(Sort.Direction.DESC, AuditingEntityAbstract.LASTMODIFIEDDATE_FIELD_NAME)));
 		argumentResolvers.add(resolver);
 	}
+
+	/**
+	 * The async requests, as the streamed excel exports, run on the async
+	 * executor with the authentication and the tenant of the request, and
+	 * are stopped after adama.async.requestTimeoutInMillis
+	 */
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.setDefaultTimeout(adamaProperties.getAsync().getRequestTimeoutInMillis());
+		configurer.setTaskExecutor(taskExecutor);
+	}
 }
@@ -1,11 +1,18 @@
 package com.adama.api.config;
 
+import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.adama.api.repository.util.scope.RequestScope;
+import com.adama.api.security.TenantContext;
+import com.adama.api.security.TenantContextHolder;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -28,22 +35,51 @@ public class ExceptionHandlingAsyncTaskExecutor implements AsyncTaskExecutor, In
 	}
 
 	private <T> Callable<T> createCallable(final Callable<T> task) {
+		SecurityContext securityContext = SecurityContextHolder.getContext();
+		Optional<TenantContext> tenantContext = TenantContextHolder.getCurrentContext();
 		return () -> {
+			SecurityContext previousSecurityContext = SecurityContextHolder.getContext();
+			Optional<TenantContext> previousTenantContext = TenantContextHolder.getCurrentContext();
+			SecurityContextHolder.setContext(securityContext);
+			TenantContextHolder.setContext(tenantContext.orElse(null));
+			// a task run by the caller keeps the scope of the caller
+			boolean scopeOpened = RequestScope.open();
 			try {
 				return task.call();
 			} catch (Exception e) {
 				handle(e);
 				throw e;
+			} finally {
+				SecurityContextHolder.setContext(previousSecurityContext);
+				TenantContextHolder.setContext(previousTenantContext.orElse(null));
+				if (scopeOpened) {
+					RequestScope.close();
+				}
 			}
 		};
 	}
 
 	private Runnable createWrappedRunnable(final Runnable task) {
+		// the task runs with the authentication and the tenant of the caller
+		SecurityContext securityContext = SecurityContextHolder.getContext();
+		Optional<TenantContext> tenantContext = TenantContextHolder.getCurrentContext();
 		return () -> {
+			SecurityContext previousSecurityContext = SecurityContextHolder.getContext();
+			Optional<TenantContext> previousTenantContext = TenantContextHolder.getCurrentContext();
+			SecurityContextHolder.setContext(securityContext);
+			TenantContextHolder.setContext(tenantContext.orElse(null));
+			// a task run by the caller keeps the scope of the caller
+			boolean scopeOpened = RequestScope.open();
 			try {
 				task.run();
 			} catch (Exception e) {
 				handle(e);
+			} finally {
+				SecurityContextHolder.setContext(previousSecurityContext);
+				TenantContextHolder.setContext(previousTenantContext.orElse(null));
+				if (scopeOpened) {
+					RequestScope.close();
+				}
 			}
 		};
 	}
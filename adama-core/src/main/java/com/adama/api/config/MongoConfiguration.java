@@ -0,0 +1,37 @@
+package com.adama.api.config;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.springframework.context.annotation.Configuration;
+
+import com.adama.api.repository.util.bulk.BulkSaveSettings;
+import com.adama.api.repository.util.dbref.DbRefIdentityMap;
+import com.adama.api.repository.util.dirty.EntitySnapshots;
+import com.adama.api.repository.util.monitoring.QueryMonitor;
+import com.adama.api.repository.util.page.CountSettings;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Configuration
+public class MongoConfiguration {
+	@Inject
+	private AdamaProperties adamaProperties;
+
+	@PostConstruct
+	public void init() {
+		log.debug("Configuring the Mongo query monitor");
+		QueryMonitor queryMonitor = QueryMonitor.getInstance();
+		queryMonitor.setSlowThresholdInMillis(adamaProperties.getMongo().getSlowQueryThresholdInMillis());
+		queryMonitor.setExplainSlowQueries(adamaProperties.getMongo().isExplainSlowQueries());
+		DbRefIdentityMap.setMaxSize(adamaProperties.getMongo().getIdentityMapMaxSize());
+		EntitySnapshots.setMaxSize(adamaProperties.getMongo().getSnapshotMaxSize());
+		CountSettings.setTimeoutInMillis(adamaProperties.getMongo().getCountTimeoutInMillis());
+		CountSettings.setFallback(adamaProperties.getMongo().getCountFallback());
+		CountSettings.setStrategy(adamaProperties.getMongo().getCountStrategy());
+		CountSettings.setCacheTimeToLiveInMillis(adamaProperties.getMongo().getCountCacheTimeToLiveInMillis());
+		CountSettings.setCacheMaxSize(adamaProperties.getMongo().getCountCacheMaxSize());
+		BulkSaveSettings.setBulkWriteEnabled(adamaProperties.getMongo().isBulkWrite());
+	}
+}
@@ -1,22 +1,28 @@
 package com.adama.api.config;
 
 import java.util.Arrays;
+import java.util.EnumSet;
 
 import javax.inject.Inject;
+import javax.servlet.DispatcherType;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 
 import org.springframework.boot.context.embedded.ConfigurableEmbeddedServletContainer;
 import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
 import org.springframework.boot.context.embedded.MimeMappings;
 import org.springframework.boot.context.embedded.ServletContextInitializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.core.env.Environment;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
 
+import com.adama.api.web.filter.RequestScopeFilter;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -57,4 +63,16 @@ public class WebConfigurer implements ServletContextInitializer, EmbeddedServlet
 		}
 		return new CorsFilter(source);
 	}
+
+	/**
+	 * The request scope wraps the whole request, security included, and its
+	 * async dispatches
+	 */
+	@Bean
+	public FilterRegistrationBean requestScopeFilter() {
+		FilterRegistrationBean registration = new FilterRegistrationBean(new RequestScopeFilter());
+		registration.setDispatcherTypes(EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC, DispatcherType.ERROR));
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+		return registration;
+	}
 }
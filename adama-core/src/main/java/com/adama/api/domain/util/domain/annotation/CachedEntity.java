@@ -0,0 +1,32 @@
+package com.adama.api.domain.util.domain.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Keep the entities read by id in a local cache of the repository. The cache is
+ * cleared by the writes of this instance only, so the entities can be stale on
+ * the other instances up to the time to live.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE })
+public @interface CachedEntity {
+	long timeToLiveInMillis() default 60000;
+
+	int maxSize() default 1000;
+
+	EvictionPolicy evictionPolicy() default EvictionPolicy.LRU;
+
+	public enum EvictionPolicy {
+		/**
+		 * Evict the least recently read entity
+		 */
+		LRU,
+		/**
+		 * Evict the least often read entity
+		 */
+		LFU
+	}
+}
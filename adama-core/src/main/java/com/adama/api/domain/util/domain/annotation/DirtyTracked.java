@@ -0,0 +1,27 @@
+package com.adama.api.domain.util.domain.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Keep a snapshot of the entities read by the repository during the request.
+ * When the same instance is saved, only its changed fields are written with
+ * $set and $unset, and nothing is written if it did not change. The other
+ * instances, such as the entities mapped from a DTO, are saved in full.
+ * 
+ * The changed fields are written directly on the collection: the template
+ * does not send the BeforeConvert, BeforeSave and AfterSave events, so their
+ * listeners and the validation are not run. The repository sets the last
+ * modified audit fields and the sort keys itself. An entity that relies on
+ * these listeners must not be annotated.
+ * 
+ * Ignored for the entities with a version or a cascade save, which need the
+ * events of the template.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE })
+public @interface DirtyTracked {
+	// nothing to do
+}
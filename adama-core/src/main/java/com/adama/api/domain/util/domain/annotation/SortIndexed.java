@@ -0,0 +1,23 @@
+package com.adama.api.domain.util.domain.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Mark a field often used to sort the entities: a compound index is declared
+ * for the filter of the repositories followed by this field.
+ * 
+ * A String field sorted without case keeps a lower cased copy in the field
+ * _sort_&lt;field&gt;, written on save, which is indexed and sorted instead of
+ * the field.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD })
+public @interface SortIndexed {
+	/**
+	 * Sort a String field without case on its lower cased copy
+	 */
+	boolean caseInsensitive() default true;
+}
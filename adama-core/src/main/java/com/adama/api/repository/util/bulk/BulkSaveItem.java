@@ -0,0 +1,31 @@
+package com.adama.api.repository.util.bulk;
+
+/**
+ * The outcome of one entity of a bulk save
+ */
+public final class BulkSaveItem<S> {
+	private final S entity;
+	private final BulkSaveOutcome outcome;
+	private final RuntimeException error;
+
+	public BulkSaveItem(S entity, BulkSaveOutcome outcome, RuntimeException error) {
+		this.entity = entity;
+		this.outcome = outcome;
+		this.error = error;
+	}
+
+	public S getEntity() {
+		return entity;
+	}
+
+	public BulkSaveOutcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * The error of the failed entity, null otherwise
+	 */
+	public RuntimeException getError() {
+		return error;
+	}
+}
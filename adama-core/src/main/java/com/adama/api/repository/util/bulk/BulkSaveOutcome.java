@@ -0,0 +1,8 @@
+package com.adama.api.repository.util.bulk;
+
+/**
+ * What happened to an entity of a bulk save
+ */
+public enum BulkSaveOutcome {
+	INSERTED, UPDATED, FAILED
+}
@@ -0,0 +1,36 @@
+package com.adama.api.repository.util.bulk;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The outcome of each entity of a bulk save, in the order of the saved
+ * entities
+ */
+public final class BulkSaveResult<S> {
+	private final List<BulkSaveItem<S>> items;
+
+	public BulkSaveResult(List<BulkSaveItem<S>> items) {
+		this.items = Collections.unmodifiableList(items);
+	}
+
+	public List<BulkSaveItem<S>> getItems() {
+		return items;
+	}
+
+	/**
+	 * The saved entities, with their generated ids
+	 */
+	public List<S> getEntities() {
+		return items.stream().map(BulkSaveItem::getEntity).collect(Collectors.toList());
+	}
+
+	public long getCount(BulkSaveOutcome outcome) {
+		return items.stream().filter(item -> outcome.equals(item.getOutcome())).count();
+	}
+
+	public boolean hasFailures() {
+		return items.stream().anyMatch(item -> BulkSaveOutcome.FAILED.equals(item.getOutcome()));
+	}
+}
@@ -0,0 +1,28 @@
+package com.adama.api.repository.util.bulk;
+
+/**
+ * The settings of the bulk saves shared by the repositories, set from the
+ * adama.mongo properties at startup. A repository can override them with its
+ * own setters.
+ */
+public final class BulkSaveSettings {
+	private static volatile boolean bulkWriteEnabled = false;
+
+	private BulkSaveSettings() {
+	}
+
+	public static boolean isBulkWriteEnabled() {
+		return bulkWriteEnabled;
+	}
+
+	/**
+	 * Enable the unordered bulk writes of the saved lists. They do not send
+	 * the events of the template, so the listeners of the application and the
+	 * validation are skipped for the entities saved in a list.
+	 * 
+	 * @param bulkWriteEnabled
+	 */
+	public static void setBulkWriteEnabled(boolean bulkWriteEnabled) {
+		BulkSaveSettings.bulkWriteEnabled = bulkWriteEnabled;
+	}
+}
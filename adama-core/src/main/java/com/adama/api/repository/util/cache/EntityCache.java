@@ -0,0 +1,141 @@
+package com.adama.api.repository.util.cache;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import com.adama.api.domain.util.domain.annotation.CachedEntity;
+import com.adama.api.domain.util.domain.annotation.CachedEntity.EvictionPolicy;
+import com.mongodb.DBObject;
+
+/**
+ * The documents of an entity class read by id, for the entity classes
+ * annotated with {@link CachedEntity}. A document is only given back to the
+ * tenant which has read it.
+ */
+public final class EntityCache {
+	private static final Map<Class<?>, Optional<EntityCache>> CACHE_MAP = new ConcurrentHashMap<>();
+	private final String name;
+	private final long timeToLiveInMillis;
+	private final int maxSize;
+	private final EvictionPolicy evictionPolicy;
+	private final LinkedHashMap<Object, Entry> entryMap;
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+	private long generation;
+
+	private EntityCache(String name, CachedEntity cachedEntity) {
+		this.name = name;
+		this.timeToLiveInMillis = cachedEntity.timeToLiveInMillis();
+		this.maxSize = cachedEntity.maxSize();
+		this.evictionPolicy = cachedEntity.evictionPolicy();
+		// in access order the eldest entry is the least recently read
+		this.entryMap = new LinkedHashMap<>(16, 0.75f, EvictionPolicy.LRU.equals(evictionPolicy));
+	}
+
+	/**
+	 * Get the cache of the entity class, empty if the class is not annotated
+	 * with {@link CachedEntity}
+	 * 
+	 * @param entityClass
+	 * @return the cache of the entity class
+	 */
+	public static Optional<EntityCache> forEntity(Class<?> entityClass) {
+		return CACHE_MAP.computeIfAbsent(entityClass,
+				type -> Optional.ofNullable(type.getAnnotation(CachedEntity.class)).map(cachedEntity -> new EntityCache(type.getSimpleName(), cachedEntity)));
+	}
+
+	/**
+	 * Get the statistics of all the caches
+	 */
+	public static List<EntityCacheStatistic> getStatistics() {
+		return CACHE_MAP.values().stream().filter(Optional::isPresent).map(Optional::get).map(EntityCache::getStatistic)
+				.sorted(Comparator.comparing(EntityCacheStatistic::getName)).collect(Collectors.toList());
+	}
+
+	/**
+	 * Get the cached document
+	 * 
+	 * @param id
+	 * @param scope
+	 *            the tenant of the current user
+	 * @return the document, empty if it is not cached for this tenant
+	 */
+	public synchronized Optional<DBObject> get(Object id, String scope) {
+		Entry entry = entryMap.get(id);
+		if (entry == null || !entry.scope.equals(scope) || entry.expireAtInMillis < System.currentTimeMillis()) {
+			missCount.increment();
+			return Optional.empty();
+		}
+		entry.hits++;
+		hitCount.increment();
+		return Optional.of(entry.document);
+	}
+
+	/**
+	 * Get the generation of the cache, changed by each invalidation
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Cache the document if the cache has not been invalidated since its read
+	 * 
+	 * @param id
+	 * @param scope
+	 *            the tenant of the current user
+	 * @param document
+	 * @param readGeneration
+	 *            the generation of the cache before the read of the document
+	 */
+	public synchronized void put(Object id, String scope, DBObject document, long readGeneration) {
+		if (readGeneration != generation) {
+			return;
+		}
+		entryMap.put(id, new Entry(scope, document, System.currentTimeMillis() + timeToLiveInMillis));
+		while (entryMap.size() > maxSize) {
+			Object evictedId;
+			if (EvictionPolicy.LFU.equals(evictionPolicy)) {
+				evictedId = entryMap.entrySet().stream().min(Comparator.comparingLong(mapEntry -> mapEntry.getValue().hits)).get().getKey();
+			} else {
+				evictedId = entryMap.keySet().iterator().next();
+			}
+			entryMap.remove(evictedId);
+			evictionCount.increment();
+		}
+	}
+
+	public synchronized void invalidate(Object id) {
+		generation++;
+		entryMap.remove(id);
+	}
+
+	public synchronized void clear() {
+		generation++;
+		entryMap.clear();
+	}
+
+	private synchronized EntityCacheStatistic getStatistic() {
+		return new EntityCacheStatistic(name, entryMap.size(), maxSize, timeToLiveInMillis, evictionPolicy.name(), hitCount.sum(), missCount.sum(), evictionCount.sum());
+	}
+
+	private static final class Entry {
+		private final String scope;
+		private final DBObject document;
+		private final long expireAtInMillis;
+		private long hits;
+
+		private Entry(String scope, DBObject document, long expireAtInMillis) {
+			this.scope = scope;
+			this.document = document;
+			this.expireAtInMillis = expireAtInMillis;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.adama.api.repository.util.cache;
+
+/**
+ * The counters of the cache of an entity class
+ */
+public final class EntityCacheStatistic {
+	private final String name;
+	private final int size;
+	private final int maxSize;
+	private final long timeToLiveInMillis;
+	private final String evictionPolicy;
+	private final long hitCount;
+	private final long missCount;
+	private final long evictionCount;
+
+	public EntityCacheStatistic(String name, int size, int maxSize, long timeToLiveInMillis, String evictionPolicy, long hitCount, long missCount, long evictionCount) {
+		this.name = name;
+		this.size = size;
+		this.maxSize = maxSize;
+		this.timeToLiveInMillis = timeToLiveInMillis;
+		this.evictionPolicy = evictionPolicy;
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getTimeToLiveInMillis() {
+		return timeToLiveInMillis;
+	}
+
+	public String getEvictionPolicy() {
+		return evictionPolicy;
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	public long getMissCount() {
+		return missCount;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+}
@@ -0,0 +1,133 @@
+package com.adama.api.repository.util.dbref;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+import com.adama.api.repository.util.metadata.EntityMetadata;
+import com.adama.api.repository.util.monitoring.QueryMonitor;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+
+/**
+ * Read the documents of a repository with their eager references resolved in
+ * batch: the ids referenced by the documents are collected per collection and
+ * read with one $in query, then the entities are shared through the
+ * {@link DbRefIdentityMap} of the request. The entities read by a batch are
+ * always used by the batch, even when the identity map does not keep them.
+ * 
+ * The lazy references and the references of the referenced entities are left
+ * to the converter.
+ */
+public class DbRefBatchResolver {
+	private final MongoOperations mongoOperations;
+
+	public DbRefBatchResolver(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	/**
+	 * Read the documents as entities, the documents are modified
+	 * 
+	 * @param type
+	 *            the class of the entities
+	 * @param documents
+	 *            the documents of the entities
+	 * @param entityMetadata
+	 *            the metadata of the entity
+	 * @param tenantScope
+	 *            the tenant logged with a slow query
+	 * @return the entities in the order of the documents
+	 */
+	public <T> List<T> read(Class<T> type, List<DBObject> documents, EntityMetadata entityMetadata, Supplier<String> tenantScope) {
+		List<MongoPersistentProperty> propertyList = entityMetadata.getDbRefProperties().values().stream()//
+				.filter(property -> !property.getDBRef().lazy())//
+				.filter(property -> !DBRef.class.equals(property.getActualType()))//
+				.collect(Collectors.toList());
+		if (!propertyList.isEmpty()) {
+			Map<String, Set<Object>> missingIdMap = new HashMap<>();
+			Map<String, Class<?>> typeMap = new HashMap<>();
+			documents.forEach(document -> propertyList.forEach(property -> getDbRefList(document.get(property.getFieldName())).forEach(dbRef -> {
+				if (!DbRefIdentityMap.get(dbRef.getCollectionName(), dbRef.getId()).isPresent()) {
+					missingIdMap.computeIfAbsent(dbRef.getCollectionName(), collection -> new LinkedHashSet<>()).add(dbRef.getId());
+					typeMap.putIfAbsent(dbRef.getCollectionName(), property.getActualType());
+				}
+			})));
+			// the entities read by this batch, by collection and id
+			Map<String, Map<Object, Object>> entityMap = new HashMap<>();
+			missingIdMap.forEach((collection, ids) -> entityMap.put(collection, fetch(collection, ids, typeMap.get(collection), tenantScope)));
+			documents.forEach(document -> propertyList.forEach(property -> replaceDbRefs(document, property.getFieldName(), entityMap)));
+		}
+		return documents.stream().map(document -> mongoOperations.getConverter().read(type, document)).collect(Collectors.toList());
+	}
+
+	private Map<Object, Object> fetch(String collection, Set<Object> ids, Class<?> type, Supplier<String> tenantScope) {
+		DBCollection coll = mongoOperations.getCollection(collection);
+		DBObject query = new BasicDBObject("_id", new BasicDBObject("$in", new ArrayList<>(ids)));
+		long start = System.currentTimeMillis();
+		List<DBObject> documentList = new ArrayList<>();
+		try (DBCursor cursor = coll.find(query)) {
+			cursor.forEach(documentList::add);
+		}
+		QueryMonitor.getInstance().record(coll.getDB(), collection, "find", query, tenantScope, System.currentTimeMillis() - start,
+				() -> new BasicDBObject("explain", new BasicDBObject("find", collection).append("filter", query)).append("verbosity", "executionStats"));
+		Map<Object, Object> entityMap = new HashMap<>();
+		documentList.forEach(document -> {
+			Object entity = mongoOperations.getConverter().read(type, document);
+			entityMap.put(document.get("_id"), entity);
+			DbRefIdentityMap.put(collection, document.get("_id"), entity);
+		});
+		return entityMap;
+	}
+
+	/**
+	 * Replace the references already read by their entities, the converter
+	 * keeps the values assignable to the property. This behaviour of the
+	 * converter is not documented, it is checked by DbRefBatchResolverTest.
+	 */
+	private void replaceDbRefs(DBObject document, String fieldName, Map<String, Map<Object, Object>> entityMap) {
+		Object value = document.get(fieldName);
+		if (value instanceof DBRef) {
+			getEntity((DBRef) value, entityMap).ifPresent(entity -> document.put(fieldName, entity));
+		} else if (value instanceof BasicDBList) {
+			BasicDBList entityList = new BasicDBList();
+			for (Object item : (BasicDBList) value) {
+				if (item instanceof DBRef) {
+					entityList.add(getEntity((DBRef) item, entityMap).orElse(item));
+				} else {
+					entityList.add(item);
+				}
+			}
+			document.put(fieldName, entityList);
+		}
+	}
+
+	private static Optional<Object> getEntity(DBRef dbRef, Map<String, Map<Object, Object>> entityMap) {
+		Object entity = entityMap.getOrDefault(dbRef.getCollectionName(), Collections.emptyMap()).get(dbRef.getId());
+		return entity != null ? Optional.of(entity) : DbRefIdentityMap.get(dbRef.getCollectionName(), dbRef.getId());
+	}
+
+	private static List<DBRef> getDbRefList(Object value) {
+		List<DBRef> dbRefList = new ArrayList<>();
+		if (value instanceof DBRef) {
+			dbRefList.add((DBRef) value);
+		} else if (value instanceof BasicDBList) {
+			((BasicDBList) value).stream().filter(item -> item instanceof DBRef).forEach(item -> dbRefList.add((DBRef) item));
+		}
+		return dbRefList;
+	}
+}
@@ -0,0 +1,106 @@
+package com.adama.api.repository.util.dbref;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import com.adama.api.repository.util.scope.RequestScope;
+
+/**
+ * The entities read through a reference during the current request, by
+ * collection and id. The entities referencing the same document share the
+ * same instance, so the document is read once per request.
+ * 
+ * The map is only kept inside the {@link RequestScope}, which clears it at the
+ * end of the request or of the async task. Outside a scope the documents are
+ * read each time. At most {@link #setMaxSize(int)} entities are kept, the
+ * next ones are read each time.
+ */
+public final class DbRefIdentityMap {
+	private static final ThreadLocal<DbRefIdentityMap> CURRENT = new ThreadLocal<>();
+	private static volatile int maxSize = 10000;
+	private final Map<String, Map<Object, Object>> entityMap = new HashMap<>();
+	private int size;
+
+	private DbRefIdentityMap() {
+	}
+
+	private static Optional<DbRefIdentityMap> getCurrent() {
+		if (!RequestScope.isActive()) {
+			return Optional.empty();
+		}
+		DbRefIdentityMap identityMap = CURRENT.get();
+		if (identityMap == null) {
+			identityMap = new DbRefIdentityMap();
+			CURRENT.set(identityMap);
+		}
+		return Optional.of(identityMap);
+	}
+
+	/**
+	 * @param collection
+	 *            the collection of the referenced document
+	 * @param id
+	 *            the id of the referenced document, as stored
+	 * @return the entity if it was already read in this request
+	 */
+	public static Optional<Object> get(String collection, Object id) {
+		return getCurrent().map(identityMap -> identityMap.entityMap.getOrDefault(collection, Collections.emptyMap()).get(id));
+	}
+
+	/**
+	 * @param collection
+	 *            the collection of the referenced document
+	 * @param id
+	 *            the id of the referenced document, as stored
+	 * @param entity
+	 *            the entity read from the document
+	 */
+	public static void put(String collection, Object id, Object entity) {
+		getCurrent().filter(identityMap -> identityMap.size < maxSize).ifPresent(identityMap -> {
+			if (identityMap.entityMap.computeIfAbsent(collection, key -> new HashMap<>()).put(id, entity) == null) {
+				identityMap.size++;
+			}
+		});
+	}
+
+	/**
+	 * Forget a document written during the request
+	 * 
+	 * @param collection
+	 * @param id
+	 *            the id of the document, as stored
+	 */
+	public static void evict(String collection, Object id) {
+		DbRefIdentityMap identityMap = CURRENT.get();
+		if (identityMap != null && identityMap.entityMap.containsKey(collection) && identityMap.entityMap.get(collection).remove(id) != null) {
+			identityMap.size--;
+		}
+	}
+
+	/**
+	 * Forget all the documents of a collection written during the request
+	 * 
+	 * @param collection
+	 */
+	public static void evictAll(String collection) {
+		DbRefIdentityMap identityMap = CURRENT.get();
+		if (identityMap != null && identityMap.entityMap.containsKey(collection)) {
+			identityMap.size -= identityMap.entityMap.remove(collection).size();
+		}
+	}
+
+	public static void clear() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * Set the maximum number of entities kept per request
+	 * 
+	 * @param maxSize
+	 */
+	public static void setMaxSize(int maxSize) {
+		DbRefIdentityMap.maxSize = maxSize;
+	}
+}
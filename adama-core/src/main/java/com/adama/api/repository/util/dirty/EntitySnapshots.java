@@ -0,0 +1,129 @@
+package com.adama.api.repository.util.dirty;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import com.adama.api.repository.util.scope.RequestScope;
+import com.mongodb.DBObject;
+
+/**
+ * The documents of the dirty tracked entities read during the current request,
+ * by collection and id. A snapshot is only given back for the instance it was
+ * read into.
+ * 
+ * The snapshots are only kept inside the {@link RequestScope}, which clears
+ * them at the end of the request or of the async task. Outside a scope the
+ * entities are saved in full. At most {@link #setMaxSize(int)} snapshots are
+ * kept, the next entities are saved in full.
+ */
+public final class EntitySnapshots {
+	private static final ThreadLocal<EntitySnapshots> CURRENT = new ThreadLocal<>();
+	private static volatile int maxSize = 10000;
+	private final Map<String, Map<Object, Snapshot>> snapshotMap = new HashMap<>();
+	private int size;
+
+	private EntitySnapshots() {
+	}
+
+	private static Optional<EntitySnapshots> getCurrent() {
+		if (!RequestScope.isActive()) {
+			return Optional.empty();
+		}
+		EntitySnapshots snapshots = CURRENT.get();
+		if (snapshots == null) {
+			snapshots = new EntitySnapshots();
+			CURRENT.set(snapshots);
+		}
+		return Optional.of(snapshots);
+	}
+
+	/**
+	 * @param collection
+	 *            the collection of the document
+	 * @param id
+	 *            the id of the document, as stored
+	 * @param entity
+	 *            the entity read from the document
+	 * @param document
+	 *            the document as stored, it must not be modified
+	 */
+	public static void track(String collection, Object id, Object entity, DBObject document) {
+		getCurrent().ifPresent(snapshots -> {
+			Map<Object, Snapshot> collectionMap = snapshots.snapshotMap.computeIfAbsent(collection, key -> new HashMap<>());
+			if (collectionMap.containsKey(id)) {
+				collectionMap.put(id, new Snapshot(entity, document));
+			} else if (snapshots.size < maxSize) {
+				collectionMap.put(id, new Snapshot(entity, document));
+				snapshots.size++;
+			}
+		});
+	}
+
+	/**
+	 * @param collection
+	 *            the collection of the document
+	 * @param id
+	 *            the id of the document, as stored
+	 * @param entity
+	 *            the entity to save
+	 * @return the document as read, if this instance was read in this request
+	 */
+	public static Optional<DBObject> get(String collection, Object id, Object entity) {
+		EntitySnapshots snapshots = CURRENT.get();
+		if (snapshots == null || !RequestScope.isActive() || !snapshots.snapshotMap.containsKey(collection)) {
+			return Optional.empty();
+		}
+		Snapshot snapshot = snapshots.snapshotMap.get(collection).get(id);
+		return snapshot != null && snapshot.entity == entity ? Optional.of(snapshot.document) : Optional.empty();
+	}
+
+	/**
+	 * Forget a document written without the snapshot
+	 * 
+	 * @param collection
+	 * @param id
+	 *            the id of the document, as stored
+	 */
+	public static void evict(String collection, Object id) {
+		EntitySnapshots snapshots = CURRENT.get();
+		if (snapshots != null && snapshots.snapshotMap.containsKey(collection) && snapshots.snapshotMap.get(collection).remove(id) != null) {
+			snapshots.size--;
+		}
+	}
+
+	/**
+	 * Forget all the documents of a collection
+	 * 
+	 * @param collection
+	 */
+	public static void evictAll(String collection) {
+		EntitySnapshots snapshots = CURRENT.get();
+		if (snapshots != null && snapshots.snapshotMap.containsKey(collection)) {
+			snapshots.size -= snapshots.snapshotMap.remove(collection).size();
+		}
+	}
+
+	public static void clear() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * Set the maximum number of snapshots kept per request
+	 * 
+	 * @param maxSize
+	 */
+	public static void setMaxSize(int maxSize) {
+		EntitySnapshots.maxSize = maxSize;
+	}
+
+	private static final class Snapshot {
+		private final Object entity;
+		private final DBObject document;
+
+		private Snapshot(Object entity, DBObject document) {
+			this.entity = entity;
+			this.document = document;
+		}
+	}
+}
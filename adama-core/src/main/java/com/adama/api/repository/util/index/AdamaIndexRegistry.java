@@ -0,0 +1,245 @@
+package com.adama.api.repository.util.index;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.stereotype.Component;
+
+import com.adama.api.config.AdamaProperties;
+import com.adama.api.config.AdamaProperties.Mongo.IndexMode;
+import com.adama.api.domain.util.domain.abst.delete.DeleteEntityAbstract;
+import com.adama.api.domain.util.domain.abst.tenant.TenantEntityAbstract;
+import com.adama.api.domain.util.domain.annotation.SortIndexed;
+import com.adama.api.repository.util.metadata.EntityMetadata;
+import com.adama.api.repository.util.sort.SortPath;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Declare the indexes needed by the repositories: the filter on the tenant and
+ * the active flag, followed by each field annotated with {@link SortIndexed},
+ * or by its lower cased copy when it is sorted without case. At startup they
+ * are created or verified, depending on adama.mongo.indexMode, and the missing
+ * ones are reported. The sorts read the lower cased copies instead of the
+ * field, the missing ones are written by {@link #writeMissingSortKeys()}. It
+ * scans the collections, so it only runs at startup as a one-shot migration
+ * when adama.mongo.writeMissingSortKeys is on and the index mode is CREATE.
+ */
+@Slf4j
+@Component
+public class AdamaIndexRegistry implements ApplicationListener<ApplicationReadyEvent> {
+	@Inject
+	private MongoOperations mongoOperations;
+	@Inject
+	private AdamaProperties adamaProperties;
+	private static final int SORT_KEY_CHUNK_SIZE = 1000;
+	private volatile List<String> missingIndexList = Collections.emptyList();
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		IndexMode indexMode = adamaProperties.getMongo().getIndexMode();
+		if (adamaProperties.getMongo().isWriteMissingSortKeys() && IndexMode.CREATE.equals(indexMode)) {
+			writeMissingSortKeys();
+		}
+		if (IndexMode.NONE.equals(indexMode)) {
+			return;
+		}
+		List<String> presentList = new ArrayList<>();
+		List<String> createdList = new ArrayList<>();
+		List<String> missingList = new ArrayList<>();
+		for (MongoPersistentEntity<?> entity : mongoOperations.getConverter().getMappingContext().getPersistentEntities()) {
+			if (!DeleteEntityAbstract.class.isAssignableFrom(entity.getType()) || Modifier.isAbstract(entity.getType().getModifiers())) {
+				continue;
+			}
+			DBCollection coll = mongoOperations.getCollection(entity.getCollection());
+			List<DBObject> existingKeyList = coll.getIndexInfo().stream().map(index -> (DBObject) index.get("key")).collect(Collectors.toList());
+			for (DBObject keys : getIndexKeys(entity)) {
+				String name = entity.getCollection() + " " + keys;
+				if (existingKeyList.stream().anyMatch(existingKeys -> isPrefix(keys, existingKeys))) {
+					presentList.add(name);
+				} else if (IndexMode.CREATE.equals(indexMode)) {
+					try {
+						coll.createIndex(keys, new BasicDBObject("background", true));
+						createdList.add(name);
+					} catch (MongoException e) {
+						log.error("Cannot create the index {}", name, e);
+						missingList.add(name);
+					}
+				} else {
+					missingList.add(name);
+				}
+			}
+		}
+		missingIndexList = Collections.unmodifiableList(missingList);
+		log.info("Mongo indexes: {} present, {} created, {} missing", presentList.size(), createdList.size(), missingList.size());
+		createdList.forEach(name -> log.info("Created the index {}", name));
+		missingList.forEach(name -> log.warn("Missing the index {}", name));
+	}
+
+	/**
+	 * Write the lower cased copies missing from the documents of the entities,
+	 * the documents written before the field was annotated or without the
+	 * repository. It scans the collections with a sorted field, to run once
+	 * after the annotation is added.
+	 * 
+	 * @return the number of documents updated
+	 */
+	public long writeMissingSortKeys() {
+		long total = 0;
+		for (MongoPersistentEntity<?> entity : mongoOperations.getConverter().getMappingContext().getPersistentEntities()) {
+			if (!DeleteEntityAbstract.class.isAssignableFrom(entity.getType()) || Modifier.isAbstract(entity.getType().getModifiers())
+					|| getEntityMetadata(entity).getSortKeyFields().isEmpty()) {
+				continue;
+			}
+			DBObject missingSortKeys = new BasicDBObject("$or", getEntityMetadata(entity).getSortKeyFields().entrySet().stream()//
+					.map(entry -> new BasicDBObject(entry.getKey(), new BasicDBObject("$type", 2)).append(entry.getValue(), new BasicDBObject("$exists", false)))//
+					.collect(Collectors.toList()));
+			try {
+				long updated = writeSortKeys(entity, missingSortKeys);
+				if (updated > 0) {
+					log.info("Wrote the sort keys of {} documents of {}", updated, entity.getCollection());
+				}
+				total += updated;
+			} catch (MongoException e) {
+				log.error("Cannot write the sort keys of {}, its case insensitive sorts miss some documents", entity.getCollection(), e);
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Get the keys of the indexes needed by the repository of the entity
+	 * 
+	 * @param entity
+	 * @return the keys of each index
+	 */
+	public List<DBObject> getIndexKeys(MongoPersistentEntity<?> entity) {
+		List<DBObject> indexKeyList = new ArrayList<>();
+		DBObject filterKeys = new BasicDBObject();
+		if (TenantEntityAbstract.class.isAssignableFrom(entity.getType())) {
+			// the filter on tenant.id is mapped on the id of the DBRef
+			filterKeys.put(TenantEntityAbstract.TENANT_FIELD_NAME + ".$id", 1);
+		}
+		filterKeys.put(DeleteEntityAbstract.ACTIVE_FIELD_NAME, 1);
+		indexKeyList.add(filterKeys);
+		entity.doWithProperties((MongoPersistentProperty property) -> {
+			if (property.isAnnotationPresent(SortIndexed.class)) {
+				String sortKeyFieldName = SortPath.getSortKeyFieldName(property);
+				DBObject sortKeys = new BasicDBObject(filterKeys.toMap());
+				sortKeys.put(sortKeyFieldName != null ? sortKeyFieldName : property.getFieldName(), 1);
+				indexKeyList.add(sortKeys);
+			}
+		});
+		return indexKeyList;
+	}
+
+	/**
+	 * Rewrite the lower cased copies of the fields sorted without case of all
+	 * the documents of the entity, after the documents were written without
+	 * the repository
+	 * 
+	 * @param entity
+	 * @return the number of documents updated
+	 */
+	public long rebuildSortKeys(MongoPersistentEntity<?> entity) {
+		return writeSortKeys(entity, new BasicDBObject());
+	}
+
+	private long writeSortKeys(MongoPersistentEntity<?> entity, DBObject query) {
+		EntityMetadata entityMetadata = getEntityMetadata(entity);
+		if (entityMetadata.getSortKeyFields().isEmpty()) {
+			return 0;
+		}
+		DBCollection coll = mongoOperations.getCollection(entity.getCollection());
+		DBObject fields = new BasicDBObject();
+		entityMetadata.getSortKeyFields().forEach((fieldName, sortKeyFieldName) -> {
+			fields.put(fieldName, 1);
+			fields.put(sortKeyFieldName, 1);
+		});
+		long updated = 0;
+		BulkWriteOperation bulk = coll.initializeUnorderedBulkOperation();
+		int pending = 0;
+		try (DBCursor cursor = coll.find(query, fields)) {
+			for (DBObject document : cursor) {
+				DBObject expected = new BasicDBObject(document.toMap());
+				entityMetadata.writeSortKeys(expected);
+				DBObject set = new BasicDBObject();
+				DBObject unset = new BasicDBObject();
+				entityMetadata.getSortKeyFields().values().forEach(sortKeyFieldName -> {
+					Object value = expected.get(sortKeyFieldName);
+					if (value == null && document.containsField(sortKeyFieldName)) {
+						unset.put(sortKeyFieldName, "");
+					} else if (value != null && !value.equals(document.get(sortKeyFieldName))) {
+						set.put(sortKeyFieldName, value);
+					}
+				});
+				if (set.keySet().isEmpty() && unset.keySet().isEmpty()) {
+					continue;
+				}
+				DBObject update = new BasicDBObject();
+				if (!set.keySet().isEmpty()) {
+					update.put("$set", set);
+				}
+				if (!unset.keySet().isEmpty()) {
+					update.put("$unset", unset);
+				}
+				bulk.find(new BasicDBObject("_id", document.get("_id"))).updateOne(update);
+				if (++pending == SORT_KEY_CHUNK_SIZE) {
+					updated += bulk.execute().getModifiedCount();
+					bulk = coll.initializeUnorderedBulkOperation();
+					pending = 0;
+				}
+			}
+		}
+		if (pending > 0) {
+			updated += bulk.execute().getModifiedCount();
+		}
+		return updated;
+	}
+
+	private EntityMetadata getEntityMetadata(MongoPersistentEntity<?> entity) {
+		return EntityMetadata.of(mongoOperations.getConverter().getMappingContext(), entity.getType());
+	}
+
+	/**
+	 * The indexes reported as missing by the last verification
+	 */
+	public List<String> getMissingIndexes() {
+		return missingIndexList;
+	}
+
+	/**
+	 * An index can be used when the keys are the first keys of the index
+	 */
+	private static boolean isPrefix(DBObject keys, DBObject existingKeys) {
+		List<String> keyList = new ArrayList<>(keys.keySet());
+		List<String> existingKeyList = new ArrayList<>(existingKeys.keySet());
+		if (existingKeyList.size() < keyList.size()) {
+			return false;
+		}
+		for (int i = 0; i < keyList.size(); i++) {
+			Object existingDirection = existingKeys.get(existingKeyList.get(i));
+			if (!keyList.get(i).equals(existingKeyList.get(i)) || !(existingDirection instanceof Number)
+					|| ((Number) existingDirection).intValue() != ((Number) keys.get(keyList.get(i))).intValue()) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,229 @@
+package com.adama.api.repository.util.metadata;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.data.mapping.Association;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.index.TextIndexed;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import com.adama.api.domain.util.domain.annotation.DirtyTracked;
+import com.adama.api.repository.util.sort.SortPath;
+import com.mongodb.DBObject;
+
+import pl.maciejwalkowiak.springdata.mongodb.CascadeSave;
+
+/**
+ * The metadata of an entity used by the repositories, built once per entity
+ * class from its mapping
+ */
+public final class EntityMetadata {
+	private static final Map<Class<?>, EntityMetadata> METADATA_MAP = new ConcurrentHashMap<>();
+	private final MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext;
+	private final MongoPersistentEntity<?> persistentEntity;
+	private final List<String> searchableFields;
+	private final List<String> textIndexedFields;
+	private final List<String> inheritedFields;
+	private final Map<String, MongoPersistentProperty> dbRefPropertyMap;
+	private final Map<String, String> fieldNameMap;
+	private final Map<String, SortPath> sortPathMap;
+	private final Map<String, String> sortKeyFieldMap;
+	private final boolean bulkWritable;
+	private final boolean dirtyTracked;
+
+	private EntityMetadata(MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext, MongoPersistentEntity<?> persistentEntity) {
+		this.mappingContext = mappingContext;
+		this.persistentEntity = persistentEntity;
+		List<String> searchableList = new ArrayList<>();
+		List<String> textIndexedList = new ArrayList<>();
+		List<String> inheritedList = new ArrayList<>();
+		Map<String, MongoPersistentProperty> dbRefMap = new HashMap<>();
+		Map<String, String> fieldNames = new HashMap<>();
+		Map<String, SortPath> sortPaths = new HashMap<>();
+		Map<String, String> sortKeyFields = new HashMap<>();
+		boolean[] cascadeSave = new boolean[1];
+		persistentEntity.doWithProperties((MongoPersistentProperty property) -> {
+			Field field = property.getField();
+			fieldNames.put(property.getName(), property.getFieldName());
+			if (field != null && !persistentEntity.getType().equals(field.getDeclaringClass())) {
+				inheritedList.add(property.getName());
+			} else if (field != null && Modifier.isPrivate(field.getModifiers()) && !ClassUtils.isPrimitiveOrWrapper(field.getType())) {
+				searchableList.add(property.getName());
+			}
+			if (property.isAnnotationPresent(CascadeSave.class)) {
+				cascadeSave[0] = true;
+			}
+			if (property.isAnnotationPresent(TextIndexed.class)) {
+				textIndexedList.add(property.getName());
+			}
+			sortPaths.put(property.getName(), SortPath.resolve(mappingContext, persistentEntity, property.getName()));
+			sortPaths.put(property.getFieldName(), SortPath.resolve(mappingContext, persistentEntity, property.getFieldName()));
+			String sortKeyFieldName = SortPath.getSortKeyFieldName(property);
+			if (sortKeyFieldName != null) {
+				sortKeyFields.put(property.getFieldName(), sortKeyFieldName);
+			}
+		});
+		// the references are associations, they are not given by
+		// doWithProperties
+		persistentEntity.doWithAssociations((Association<MongoPersistentProperty> association) -> {
+			MongoPersistentProperty property = association.getInverse();
+			fieldNames.put(property.getName(), property.getFieldName());
+			sortPaths.put(property.getName(), SortPath.resolve(mappingContext, persistentEntity, property.getName()));
+			if (property.isDbReference()) {
+				dbRefMap.put(property.getName(), property);
+				MongoPersistentEntity<?> dbRefEntity = mappingContext.getPersistentEntity(property.getActualType());
+				if (dbRefEntity != null) {
+					dbRefEntity.doWithProperties((MongoPersistentProperty dbRefProperty) -> {
+						String path = property.getName() + "." + dbRefProperty.getName();
+						sortPaths.put(path, SortPath.resolve(mappingContext, persistentEntity, path));
+					});
+				}
+			}
+		});
+		this.searchableFields = Collections.unmodifiableList(searchableList);
+		this.textIndexedFields = Collections.unmodifiableList(textIndexedList);
+		this.inheritedFields = Collections.unmodifiableList(inheritedList);
+		this.dbRefPropertyMap = Collections.unmodifiableMap(dbRefMap);
+		this.fieldNameMap = Collections.unmodifiableMap(fieldNames);
+		this.sortPathMap = Collections.unmodifiableMap(sortPaths);
+		this.sortKeyFieldMap = Collections.unmodifiableMap(sortKeyFields);
+		this.bulkWritable = !cascadeSave[0] && !persistentEntity.hasVersionProperty();
+		this.dirtyTracked = bulkWritable && persistentEntity.findAnnotation(DirtyTracked.class) != null;
+	}
+
+	/**
+	 * Get the metadata of the entity class, built on the first call
+	 * 
+	 * @param mappingContext
+	 * @param entityClass
+	 * @return the metadata of the entity
+	 */
+	public static EntityMetadata of(MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext, Class<?> entityClass) {
+		return METADATA_MAP.computeIfAbsent(entityClass, type -> {
+			MongoPersistentEntity<?> persistentEntity = mappingContext.getPersistentEntity(type);
+			Assert.notNull(persistentEntity, "No mapping for the entity " + type.getName());
+			return new EntityMetadata(mappingContext, persistentEntity);
+		});
+	}
+
+	public MongoPersistentEntity<?> getPersistentEntity() {
+		return persistentEntity;
+	}
+
+	/**
+	 * The private non-primitive fields declared by the entity, searched by the
+	 * regex search
+	 */
+	public List<String> getSearchableFields() {
+		return searchableFields;
+	}
+
+	/**
+	 * The fields annotated with {@link TextIndexed}
+	 */
+	public List<String> getTextIndexedFields() {
+		return textIndexedFields;
+	}
+
+	/**
+	 * The fields inherited from the abstract entities (audit, active, id,
+	 * tenant)
+	 */
+	public List<String> getInheritedFields() {
+		return inheritedFields;
+	}
+
+	/**
+	 * The DBRef properties by property name
+	 */
+	public Map<String, MongoPersistentProperty> getDbRefProperties() {
+		return dbRefPropertyMap;
+	}
+
+	/**
+	 * Get the name of the field in the document
+	 * 
+	 * @param property
+	 *            the name of the property
+	 * @return the field name, or the property if it is not mapped
+	 */
+	public String getFieldName(String property) {
+		return fieldNameMap.getOrDefault(property, property);
+	}
+
+	/**
+	 * Is the property mapped in the entity
+	 * 
+	 * @param property
+	 *            the name of the property
+	 * @return true if the entity has the property
+	 */
+	public boolean hasProperty(String property) {
+		return fieldNameMap.containsKey(property);
+	}
+
+	/**
+	 * Get the resolved sort path of a property
+	 * 
+	 * @param property
+	 *            the property of the sort, as field or as dbRefField.field
+	 * @return the sort path
+	 */
+	public SortPath getSortPath(String property) {
+		SortPath sortPath = sortPathMap.get(property);
+		// the unknown paths come from the requests, they are not kept
+		return sortPath != null ? sortPath : SortPath.resolve(mappingContext, persistentEntity, property);
+	}
+
+	/**
+	 * The fields sorted on a lower cased copy, by field name
+	 */
+	public Map<String, String> getSortKeyFields() {
+		return sortKeyFieldMap;
+	}
+
+	/**
+	 * Write the lower cased copies of the fields of a document, or remove them
+	 * when the field is not a String
+	 * 
+	 * @param document
+	 *            the document of the entity
+	 */
+	public void writeSortKeys(DBObject document) {
+		sortKeyFieldMap.forEach((fieldName, sortKeyFieldName) -> {
+			Object value = document.get(fieldName);
+			if (value instanceof String) {
+				document.put(sortKeyFieldName, ((String) value).toLowerCase(Locale.ROOT));
+			} else {
+				document.removeField(sortKeyFieldName);
+			}
+		});
+	}
+
+	/**
+	 * Can the entity be written without the events of the template: it has no
+	 * cascade save and no version
+	 */
+	public boolean isBulkWritable() {
+		return bulkWritable;
+	}
+
+	/**
+	 * Are the entities saved with only their changed fields, see
+	 * {@link DirtyTracked}
+	 */
+	public boolean isDirtyTracked() {
+		return dirtyTracked;
+	}
+}
@@ -0,0 +1,224 @@
+package com.adama.api.repository.util.monitoring;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Time the queries of the repositories by shape. The queries slower than the
+ * threshold are logged with the plan given by explain, the statistics are read
+ * by the monitoring resource. The explains are run in the background, so they
+ * do not slow down the request.
+ */
+@Slf4j
+public final class QueryMonitor {
+	private static final QueryMonitor INSTANCE = new QueryMonitor();
+	private final Map<String, QueryStatistic> statisticMap = new ConcurrentHashMap<>();
+	private final ExecutorService explainExecutor = createExplainExecutor();
+	private volatile long slowThresholdInMillis = 500;
+	private volatile boolean explainSlowQueries = true;
+	private volatile long explainIntervalInMillis = 60000;
+	private volatile int maxSize = 1000;
+
+	private QueryMonitor() {
+		// singleton
+	}
+
+	/**
+	 * One thread explains the queries one at a time, the explains are dropped
+	 * when too many are waiting
+	 */
+	private static ExecutorService createExplainExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(100), runnable -> {
+			Thread thread = new Thread(runnable, "Adama-Explain");
+			thread.setDaemon(true);
+			return thread;
+		}, new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	public static QueryMonitor getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Record the time of a query
+	 * 
+	 * @param db
+	 *            the database of the collection
+	 * @param collection
+	 * @param operation
+	 *            find, count, aggregate or exists
+	 * @param query
+	 *            the mapped query, or the pipeline
+	 * @param tenantScope
+	 *            the tenant of the user, read when the query is slow
+	 * @param timeInMillis
+	 * @param explainCommand
+	 *            the explain command of the query, run when it is slow
+	 */
+	public void record(DB db, String collection, String operation, Object query, Supplier<String> tenantScope, long timeInMillis, Supplier<DBObject> explainCommand) {
+		String shape = String.valueOf(getShape(query));
+		String key = collection + " " + operation + " " + shape;
+		QueryStatistic statistic = statisticMap.get(key);
+		if (statistic == null) {
+			if (statisticMap.size() >= maxSize) {
+				// the shapes are not kept any more, only the slow queries are
+				// logged
+				if (timeInMillis >= slowThresholdInMillis) {
+					logSlowQuery(collection, operation, shape, tenantScope.get(), timeInMillis, null);
+				}
+				return;
+			}
+			statistic = statisticMap.computeIfAbsent(key, newKey -> new QueryStatistic(collection, operation, shape));
+		}
+		boolean slow = timeInMillis >= slowThresholdInMillis;
+		String tenant = slow ? tenantScope.get() : null;
+		statistic.record(timeInMillis, slow, tenant);
+		if (slow) {
+			if (explainSlowQueries && statistic.claimExplain(System.currentTimeMillis(), explainIntervalInMillis)) {
+				// the command is built here, the query may be changed once
+				// it is run
+				DBObject command = explainCommand.get();
+				QueryStatistic explainedStatistic = statistic;
+				try {
+					explainExecutor.execute(() -> {
+						explain(db, explainedStatistic, command);
+						logSlowQuery(collection, operation, shape, tenant, timeInMillis, explainedStatistic);
+					});
+					return;
+				} catch (RejectedExecutionException e) {
+					log.debug("Too many queries to explain, {} is not explained", shape);
+				}
+			}
+			logSlowQuery(collection, operation, shape, tenant, timeInMillis, statistic);
+		}
+	}
+
+	private void logSlowQuery(String collection, String operation, String shape, String tenant, long timeInMillis, QueryStatistic statistic) {
+		if (statistic == null || statistic.getPlan() == null) {
+			log.warn("Slow {} on {} in {} ms, tenant '{}': {}", operation, collection, timeInMillis, tenant, shape);
+		} else {
+			log.warn("Slow {} on {} in {} ms, tenant '{}': {}, docs examined {}, keys examined {}, plan {}", operation, collection, timeInMillis, tenant, shape, statistic.getDocsExamined(),
+					statistic.getKeysExamined(), statistic.getPlan());
+		}
+	}
+
+	private void explain(DB db, QueryStatistic statistic, DBObject explainCommand) {
+		try {
+			DBObject explain = db.command(explainCommand);
+			DBObject executionStats = (DBObject) explain.get("executionStats");
+			DBObject queryPlanner = (DBObject) explain.get("queryPlanner");
+			if (queryPlanner == null && explain.get("stages") instanceof List) {
+				// the plan of an aggregation is in its first stage
+				DBObject cursorStage = (DBObject) ((DBObject) ((List<?>) explain.get("stages")).get(0)).get("$cursor");
+				queryPlanner = cursorStage == null ? null : (DBObject) cursorStage.get("queryPlanner");
+				executionStats = cursorStage == null ? null : (DBObject) cursorStage.get("executionStats");
+			}
+			Long docsExamined = executionStats == null ? null : ((Number) executionStats.get("totalDocsExamined")).longValue();
+			Long keysExamined = executionStats == null ? null : ((Number) executionStats.get("totalKeysExamined")).longValue();
+			String plan = queryPlanner == null ? null : getPlan((DBObject) queryPlanner.get("winningPlan"));
+			statistic.setExplain(docsExamined, keysExamined, plan);
+		} catch (MongoException | ClassCastException e) {
+			log.debug("Cannot explain the query {}", statistic.getShape(), e);
+			statistic.setExplain(null, null, null);
+		}
+	}
+
+	/**
+	 * Get the stages of the plan, from the last one to the first one
+	 */
+	private static String getPlan(DBObject stage) {
+		List<String> stageList = new ArrayList<>();
+		while (stage != null) {
+			String name = String.valueOf(stage.get("stage"));
+			stageList.add(stage.get("keyPattern") == null ? name : name + " " + stage.get("keyPattern"));
+			stage = (DBObject) stage.get("inputStage");
+		}
+		return String.join(" < ", stageList);
+	}
+
+	/**
+	 * Replace the values of the query by ?, keeping the fields and the
+	 * operators
+	 */
+	private static Object getShape(Object value) {
+		if (value instanceof List) {
+			BasicDBList shape = new BasicDBList();
+			((List<?>) value).forEach(element -> shape.add(getShape(element)));
+			return shape;
+		}
+		if (value instanceof DBObject) {
+			DBObject document = (DBObject) value;
+			DBObject shape = new BasicDBObject();
+			document.keySet().forEach(key -> shape.put(key, getShape(document.get(key))));
+			return shape;
+		}
+		return "?";
+	}
+
+	/**
+	 * Get the statistics, the slowest first
+	 */
+	public List<QueryStatistic> getStatistics() {
+		return statisticMap.values().stream().sorted(Comparator.comparingLong(QueryStatistic::getTotalTimeInMillis).reversed()).collect(Collectors.toList());
+	}
+
+	public void reset() {
+		statisticMap.clear();
+	}
+
+	/**
+	 * Set the time from which a query is slow
+	 * 
+	 * @param slowThresholdInMillis
+	 */
+	public void setSlowThresholdInMillis(long slowThresholdInMillis) {
+		this.slowThresholdInMillis = slowThresholdInMillis;
+	}
+
+	/**
+	 * Set if the slow queries are explained
+	 * 
+	 * @param explainSlowQueries
+	 */
+	public void setExplainSlowQueries(boolean explainSlowQueries) {
+		this.explainSlowQueries = explainSlowQueries;
+	}
+
+	/**
+	 * Set the minimum time between two explains of a shape of query
+	 * 
+	 * @param explainIntervalInMillis
+	 */
+	public void setExplainIntervalInMillis(long explainIntervalInMillis) {
+		this.explainIntervalInMillis = explainIntervalInMillis;
+	}
+
+	/**
+	 * Set the maximum number of shapes of query kept
+	 * 
+	 * @param maxSize
+	 */
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+}
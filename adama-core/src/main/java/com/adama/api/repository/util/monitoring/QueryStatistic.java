@@ -0,0 +1,115 @@
+package com.adama.api.repository.util.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters of one shape of query on a collection
+ */
+public class QueryStatistic {
+	private final String collection;
+	private final String operation;
+	private final String shape;
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalTimeInMillis = new LongAdder();
+	private final AtomicLong maxTimeInMillis = new AtomicLong();
+	private final LongAdder slowCount = new LongAdder();
+	private volatile String lastSlowTenant;
+	private volatile Long docsExamined;
+	private volatile Long keysExamined;
+	private volatile String plan;
+	private final AtomicLong explainedAtInMillis = new AtomicLong();
+
+	public QueryStatistic(String collection, String operation, String shape) {
+		this.collection = collection;
+		this.operation = operation;
+		this.shape = shape;
+	}
+
+	void record(long timeInMillis, boolean slow, String tenant) {
+		count.increment();
+		totalTimeInMillis.add(timeInMillis);
+		maxTimeInMillis.accumulateAndGet(timeInMillis, Math::max);
+		if (slow) {
+			slowCount.increment();
+			lastSlowTenant = tenant;
+		}
+	}
+
+	/**
+	 * Claim the next explain of the shape, only one caller gets it per
+	 * interval
+	 * 
+	 * @return true if the caller must explain the query
+	 */
+	boolean claimExplain(long now, long explainIntervalInMillis) {
+		long explainedAt = explainedAtInMillis.get();
+		return now - explainedAt >= explainIntervalInMillis && explainedAtInMillis.compareAndSet(explainedAt, now);
+	}
+
+	void setExplain(Long docsExamined, Long keysExamined, String plan) {
+		this.docsExamined = docsExamined;
+		this.keysExamined = keysExamined;
+		this.plan = plan;
+	}
+
+	public String getCollection() {
+		return collection;
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	/**
+	 * The query with its values replaced by ?
+	 */
+	public String getShape() {
+		return shape;
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getTotalTimeInMillis() {
+		return totalTimeInMillis.sum();
+	}
+
+	public long getMaxTimeInMillis() {
+		return maxTimeInMillis.get();
+	}
+
+	public long getSlowCount() {
+		return slowCount.sum();
+	}
+
+	/**
+	 * The tenant of the last slow query, empty without tenant
+	 */
+	public String getLastSlowTenant() {
+		return lastSlowTenant;
+	}
+
+	/**
+	 * The documents examined by the last explained slow query
+	 */
+	public Long getDocsExamined() {
+		return docsExamined;
+	}
+
+	/**
+	 * The index keys examined by the last explained slow query
+	 */
+	public Long getKeysExamined() {
+		return keysExamined;
+	}
+
+	/**
+	 * The stages of the winning plan of the last explained slow query, as
+	 * FETCH < IXSCAN {active: 1}
+	 */
+	public String getPlan() {
+		return plan;
+	}
+}
@@ -0,0 +1,143 @@
+package com.adama.api.repository.util.page;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+
+/**
+ * Cache of the count queries of a repository, keyed by the normalized query
+ * object and the tenant. The cache is disabled until a time to live is set,
+ * here or in the shared {@link CountSettings}, and is invalidated by each
+ * write of the repository.
+ */
+public class CountCache {
+	private final Map<String, Entry> entryMap = new ConcurrentHashMap<>();
+	private final AtomicLong generation = new AtomicLong();
+	// the overrides of the shared count settings, null to use them
+	private volatile Long timeToLiveInMillis;
+	private volatile Integer maxSize;
+
+	public boolean isEnabled() {
+		return getTimeToLiveInMillis() > 0;
+	}
+
+	private long getTimeToLiveInMillis() {
+		return timeToLiveInMillis != null ? timeToLiveInMillis : CountSettings.getCacheTimeToLiveInMillis();
+	}
+
+	private int getMaxSize() {
+		return maxSize != null ? maxSize : CountSettings.getCacheMaxSize();
+	}
+
+	/**
+	 * Get the generation of the cache, to give to
+	 * {@link #put(String, long, long)} when the count is done
+	 * 
+	 * @return the current generation
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	public Optional<Long> get(String key) {
+		if (!isEnabled()) {
+			return Optional.empty();
+		}
+		Entry entry = entryMap.get(key);
+		if (entry == null) {
+			return Optional.empty();
+		}
+		if (entry.expiration < System.currentTimeMillis()) {
+			entryMap.remove(key, entry);
+			return Optional.empty();
+		}
+		return Optional.of(entry.count);
+	}
+
+	/**
+	 * Put a count in the cache, if the cache has not been invalidated since
+	 * the count started
+	 * 
+	 * @param key
+	 * @param count
+	 * @param countGeneration
+	 *            the generation of the cache when the count started
+	 */
+	public void put(String key, long count, long countGeneration) {
+		if (!isEnabled() || countGeneration != generation.get()) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		int maxEntries = getMaxSize();
+		if (entryMap.size() >= maxEntries) {
+			entryMap.values().removeIf(entry -> entry.expiration < now);
+			if (entryMap.size() >= maxEntries) {
+				entryMap.clear();
+			}
+		}
+		entryMap.put(key, new Entry(count, now + getTimeToLiveInMillis()));
+	}
+
+	public void invalidate() {
+		generation.incrementAndGet();
+		entryMap.clear();
+	}
+
+	public void setTimeToLiveInMillis(long timeToLiveInMillis) {
+		this.timeToLiveInMillis = timeToLiveInMillis;
+		invalidate();
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Get the key of a query, the same for two queries with the same
+	 * criteria in a different order
+	 * 
+	 * @param queryObject
+	 *            the query
+	 * @param scope
+	 *            the tenant of the query
+	 * @return the key
+	 */
+	public static String getKey(DBObject queryObject, String scope) {
+		return scope + ":" + JSON.serialize(normalize(queryObject));
+	}
+
+	private static Object normalize(Object value) {
+		if (value instanceof List) {
+			BasicDBList list = new BasicDBList();
+			((List<?>) value).forEach(item -> list.add(normalize(item)));
+			return list;
+		}
+		if (value instanceof DBObject) {
+			DBObject dbObject = (DBObject) value;
+			Map<String, Object> sortedMap = new TreeMap<>();
+			dbObject.keySet().forEach(key -> sortedMap.put(key, normalize(dbObject.get(key))));
+			BasicDBObject normalized = new BasicDBObject();
+			normalized.putAll(sortedMap);
+			return normalized;
+		}
+		return value;
+	}
+
+	private static class Entry {
+		private final long count;
+		private final long expiration;
+
+		private Entry(long count, long expiration) {
+			this.count = count;
+			this.expiration = expiration;
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package com.adama.api.repository.util.page;
+
+/**
+ * What to do when the count of a page is too long, the other errors of the
+ * count are always thrown
+ */
+public enum CountFallback {
+	/**
+	 * the error is thrown, the page is not returned
+	 */
+	ERROR,
+	/**
+	 * the total is the number of entities until the end of the page, plus one
+	 * if the page is full, so the client still sees a next page
+	 */
+	LOWER_BOUND
+}
@@ -0,0 +1,90 @@
+package com.adama.api.repository.util.page;
+
+import org.springframework.util.Assert;
+
+/**
+ * The settings of the page counts shared by the repositories, set from the
+ * adama.mongo properties at startup. A repository can override them with its
+ * own setters.
+ */
+public final class CountSettings {
+	private static volatile long timeoutInMillis = 10000;
+	private static volatile CountFallback fallback = CountFallback.ERROR;
+	private static volatile CountStrategy strategy = CountStrategy.EXACT;
+	private static volatile long cacheTimeToLiveInMillis = 0;
+	private static volatile int cacheMaxSize = 1000;
+
+	private CountSettings() {
+	}
+
+	public static long getTimeoutInMillis() {
+		return timeoutInMillis;
+	}
+
+	/**
+	 * Set the maximum time to wait for the count of a page once the page is
+	 * read, the count is also stopped by the server after this time
+	 * 
+	 * @param timeoutInMillis
+	 */
+	public static void setTimeoutInMillis(long timeoutInMillis) {
+		Assert.isTrue(timeoutInMillis > 0, "The count timeout must be positive");
+		CountSettings.timeoutInMillis = timeoutInMillis;
+	}
+
+	public static CountFallback getFallback() {
+		return fallback;
+	}
+
+	/**
+	 * Set what to do when the count of a page is too long
+	 * 
+	 * @param fallback
+	 */
+	public static void setFallback(CountFallback fallback) {
+		Assert.notNull(fallback);
+		CountSettings.fallback = fallback;
+	}
+
+	public static CountStrategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * Set how the total of a page is counted
+	 * 
+	 * @param strategy
+	 */
+	public static void setStrategy(CountStrategy strategy) {
+		Assert.notNull(strategy);
+		CountSettings.strategy = strategy;
+	}
+
+	public static long getCacheTimeToLiveInMillis() {
+		return cacheTimeToLiveInMillis;
+	}
+
+	/**
+	 * Set how long the count of a query is cached, 0 to disable the cache
+	 * 
+	 * @param cacheTimeToLiveInMillis
+	 */
+	public static void setCacheTimeToLiveInMillis(long cacheTimeToLiveInMillis) {
+		Assert.isTrue(cacheTimeToLiveInMillis >= 0, "The count cache time to live cannot be negative");
+		CountSettings.cacheTimeToLiveInMillis = cacheTimeToLiveInMillis;
+	}
+
+	public static int getCacheMaxSize() {
+		return cacheMaxSize;
+	}
+
+	/**
+	 * Set the maximum number of cached counts of each repository
+	 * 
+	 * @param cacheMaxSize
+	 */
+	public static void setCacheMaxSize(int cacheMaxSize) {
+		Assert.isTrue(cacheMaxSize > 0, "The count cache size must be positive");
+		CountSettings.cacheMaxSize = cacheMaxSize;
+	}
+}
@@ -0,0 +1,18 @@
+package com.adama.api.repository.util.page;
+
+/**
+ * How the total of a page is counted
+ */
+public enum CountStrategy {
+	/**
+	 * the entities matching the query are counted
+	 */
+	EXACT,
+	/**
+	 * when the query only filters the deleted entities, the total is the size
+	 * of the collection given by its metadata. The deleted entities are
+	 * counted too, so the total is too high by their number: only use it on
+	 * collections with few deleted entities. The page is flagged approximate.
+	 */
+	ESTIMATED_WHEN_UNFILTERED
+}
@@ -0,0 +1,28 @@
+package com.adama.api.repository.util.page;
+
+import java.util.List;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * A page telling if its total is exact or approximate.
+ */
+public class CountedPage<T> extends PageImpl<T> {
+	private static final long serialVersionUID = 1L;
+	private final boolean totalExact;
+
+	public CountedPage(List<T> content, Pageable pageable, PageTotal total) {
+		super(content, pageable, total.getTotal());
+		this.totalExact = total.isExact();
+	}
+
+	/**
+	 * Is the total the exact count of the entities
+	 * 
+	 * @return false if the total is an estimation, a cached or a fallback value
+	 */
+	public boolean isTotalExact() {
+		return totalExact;
+	}
+}
@@ -0,0 +1,65 @@
+package com.adama.api.repository.util.page;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.util.JSON;
+import com.mongodb.util.JSONParseException;
+
+/**
+ * Opaque cursor of the keyset pagination. It holds the sort values and the id
+ * of the last entity of a page, encoded as an url safe base64 string.
+ */
+public final class KeysetCursor {
+	private final List<Object> values;
+
+	public KeysetCursor(List<Object> values) {
+		this.values = Collections.unmodifiableList(new ArrayList<>(values));
+	}
+
+	/**
+	 * Get the values of the last entity, in the order of the sort
+	 * 
+	 * @return the list of values
+	 */
+	public List<Object> getValues() {
+		return values;
+	}
+
+	/**
+	 * Encode the cursor as a token
+	 * 
+	 * @return the token to give to the client
+	 */
+	public String encode() {
+		BasicDBList list = new BasicDBList();
+		list.addAll(values);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(JSON.serialize(list).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decode a token given by the client
+	 * 
+	 * @param token
+	 *            the token
+	 * @return the cursor
+	 * @throws IllegalArgumentException
+	 *             if the token is not valid
+	 */
+	public static KeysetCursor decode(String token) {
+		Object parsed;
+		try {
+			parsed = JSON.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+		} catch (IllegalArgumentException | JSONParseException e) {
+			throw new IllegalArgumentException("The pagination cursor is not valid", e);
+		}
+		if (!(parsed instanceof BasicDBList)) {
+			throw new IllegalArgumentException("The pagination cursor is not valid");
+		}
+		return new KeysetCursor((BasicDBList) parsed);
+	}
+}
@@ -0,0 +1,29 @@
+package com.adama.api.repository.util.page;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+/**
+ * A slice of entities read with the keyset pagination, with the cursor to get
+ * the next one.
+ */
+public class KeysetPage<T> extends SliceImpl<T> {
+	private static final long serialVersionUID = 1L;
+	private final String nextCursor;
+
+	public KeysetPage(List<T> content, Pageable pageable, boolean hasNext, String nextCursor) {
+		super(content, pageable, hasNext);
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * Get the cursor of the next slice
+	 * 
+	 * @return the cursor, or null if there is no next slice
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+}
@@ -0,0 +1,59 @@
+package com.adama.api.repository.util.page;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Page request reading one more entity than the given one, to know if there
+ * is a next page without counting.
+ */
+public final class LookaheadPageRequest implements Pageable {
+	private final Pageable pageable;
+
+	public LookaheadPageRequest(Pageable pageable) {
+		this.pageable = pageable;
+	}
+
+	@Override
+	public int getPageNumber() {
+		return pageable.getPageNumber();
+	}
+
+	@Override
+	public int getPageSize() {
+		if (pageable.getPageSize() == Integer.MAX_VALUE) {
+			return Integer.MAX_VALUE;
+		}
+		return pageable.getPageSize() + 1;
+	}
+
+	@Override
+	public int getOffset() {
+		return pageable.getOffset();
+	}
+
+	@Override
+	public Sort getSort() {
+		return pageable.getSort();
+	}
+
+	@Override
+	public Pageable next() {
+		return new LookaheadPageRequest(pageable.next());
+	}
+
+	@Override
+	public Pageable previousOrFirst() {
+		return new LookaheadPageRequest(pageable.previousOrFirst());
+	}
+
+	@Override
+	public Pageable first() {
+		return new LookaheadPageRequest(pageable.first());
+	}
+
+	@Override
+	public boolean hasPrevious() {
+		return pageable.hasPrevious();
+	}
+}
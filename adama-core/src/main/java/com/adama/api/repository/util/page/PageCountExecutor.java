@@ -0,0 +1,48 @@
+package com.adama.api.repository.util.page;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor running the count queries of the pages while the page
+ * itself is read. When the executor is full, the count is run by the caller.
+ */
+public final class PageCountExecutor {
+	private static final ExecutorService DEFAULT_EXECUTOR = create(Math.max(2, Runtime.getRuntime().availableProcessors()), 1000);
+
+	private PageCountExecutor() {
+	}
+
+	/**
+	 * Get the executor shared by the repositories
+	 * 
+	 * @return the default executor
+	 */
+	public static ExecutorService getDefaultExecutor() {
+		return DEFAULT_EXECUTOR;
+	}
+
+	/**
+	 * Create a bounded executor for the count queries
+	 * 
+	 * @param poolSize
+	 *            the maximum number of concurrent counts
+	 * @param queueCapacity
+	 *            the number of counts waiting before they are run by the
+	 *            caller
+	 * @return the executor
+	 */
+	public static ExecutorService create(int poolSize, int queueCapacity) {
+		AtomicInteger threadNumber = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+			Thread thread = new Thread(runnable, "Adama-Count-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}, new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+}
@@ -0,0 +1,22 @@
+package com.adama.api.repository.util.page;
+
+/**
+ * The total of a page and if it is exact.
+ */
+public final class PageTotal {
+	private final long total;
+	private final boolean exact;
+
+	public PageTotal(long total, boolean exact) {
+		this.total = total;
+		this.exact = exact;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public boolean isExact() {
+		return exact;
+	}
+}
@@ -2,15 +2,21 @@ package com.adama.api.repository.util.repository;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.repository.NoRepositoryBean;
 
 import com.adama.api.domain.util.domain.abst.delete.DeleteEntityAbstract;
+import com.adama.api.repository.util.bulk.BulkSaveResult;
+import com.adama.api.repository.util.page.KeysetPage;
 import org.springframework.data.domain.Sort;
 
 /**
@@ -30,6 +36,41 @@ public interface AdamaMongoRepository<T extends DeleteEntityAbstract, ID extends
 	 */
 	Page<T> search(String key, Pageable pageable);
 
+	/**
+	 * Search on the entity with the given key, reading only the given fields
+	 * 
+	 * @param key
+	 *            the key for the search
+	 * @param pageable
+	 * @param fields
+	 *            the properties to read, all of them when empty
+	 * @return
+	 */
+	Page<T> search(String key, Pageable pageable, Set<String> fields);
+
+	/**
+	 * Search on the entity with the given key, without counting the entities
+	 * 
+	 * @param key
+	 *            the key for the search
+	 * @param pageable
+	 * @return
+	 */
+	Slice<T> searchSlice(String key, Pageable pageable);
+
+	/**
+	 * Search on the entity with the given key, without counting the entities,
+	 * reading only the given fields
+	 * 
+	 * @param key
+	 *            the key for the search
+	 * @param pageable
+	 * @param fields
+	 *            the properties to read, all of them when empty
+	 * @return
+	 */
+	Slice<T> searchSlice(String key, Pageable pageable, Set<String> fields);
+
 	/**
 	 * find all with the query and the pageable
 	 * 
@@ -49,6 +90,59 @@ public interface AdamaMongoRepository<T extends DeleteEntityAbstract, ID extends
 	 */
 	Page<T> findAllQueryPageable(Optional<Query> queryOptional, Optional<Sort> sortOptional, Optional<Pageable> pageableOptional);
 
+	/**
+	 * find all with the query, the sortable and the pageable, reading only the
+	 * given fields
+	 * 
+	 * @param query
+	 * @param sort
+	 * @param pageable
+	 * @param fields
+	 *            the properties to read, all of them when empty
+	 * @return
+	 */
+	Page<T> findAllQueryPageable(Optional<Query> queryOptional, Optional<Sort> sortOptional, Optional<Pageable> pageableOptional, Set<String> fields);
+
+	/**
+	 * find all with the query, the sortable and the pageable, without counting
+	 * the entities
+	 * 
+	 * @param query
+	 * @param sort
+	 * @param pageable
+	 * @return
+	 */
+	Slice<T> findAllQuerySlice(Optional<Query> queryOptional, Optional<Sort> sortOptional, Pageable pageable);
+
+	/**
+	 * find all with the query, the sortable and the pageable, without counting
+	 * the entities, reading only the given fields
+	 * 
+	 * @param query
+	 * @param sort
+	 * @param pageable
+	 * @param fields
+	 *            the properties to read, all of them when empty
+	 * @return
+	 */
+	Slice<T> findAllQuerySlice(Optional<Query> queryOptional, Optional<Sort> sortOptional, Pageable pageable, Set<String> fields);
+
+	/**
+	 * find all with the query, after the cursor, with a range query on the sort
+	 * of the pageable instead of a skip
+	 * 
+	 * @param query
+	 * @param pageable
+	 *            the size and the sort, the page number is ignored. The
+	 *            strings are sorted without case, they must be annotated with
+	 *            SortIndexed
+	 * @param cursor
+	 *            the cursor given by the previous slice, empty for the first
+	 *            one
+	 * @return
+	 */
+	KeysetPage<T> findAllByCursor(Optional<Query> query, Pageable pageable, Optional<String> cursor);
+
 	/**
 	 * find all with the query
 	 * 
@@ -58,6 +152,19 @@ public interface AdamaMongoRepository<T extends DeleteEntityAbstract, ID extends
 	 */
 	List<T> findAll(Optional<Query> query);
 
+	/**
+	 * find all with the query, the sortable and the pageable, reading only the
+	 * given fields
+	 * 
+	 * @param query
+	 * @param sort
+	 * @param pageable
+	 * @param fields
+	 *            the properties to read, all of them when empty
+	 * @return
+	 */
+	List<T> findAll(Optional<Query> query, Optional<Sort> sort, Optional<Pageable> pageable, Set<String> fields);
+
 	/**
 	 * find all with the id list
 	 * 
@@ -76,4 +183,41 @@ public interface AdamaMongoRepository<T extends DeleteEntityAbstract, ID extends
 	 * @return
 	 */
 	T findOne(Optional<Query> query);
-}
\ No newline at end of file
+
+	/**
+	 * stream the entities of the query, read from a cursor by batch and
+	 * decoded one by one. The stream must be closed to close the cursor.
+	 * 
+	 * @param query
+	 * @param sort
+	 * @return
+	 */
+	Stream<T> stream(Optional<Query> query, Optional<Sort> sort);
+
+	/**
+	 * save the entities and give the outcome of each one. By default each
+	 * entity is saved as by {@link #save(Object)}, with the events of the
+	 * template. When the bulk writes are enabled, by adama.mongo.bulkWrite or
+	 * the repository, the entities without cascade save and version are
+	 * written with unordered bulk writes, by chunk, without the events of the
+	 * template: the new entities are inserted, the others are replaced if they
+	 * are found by their id in the tenant of the user, else they fail
+	 * 
+	 * @param entities
+	 * @return the outcome of each entity
+	 */
+	<S extends T> BulkSaveResult<S> bulkSave(Iterable<S> entities);
+
+	/**
+	 * update only the given properties of the active entity in one
+	 * findAndModify: $set for the values, $unset for the null values, and the
+	 * audit fields. The id, the tenant, the active flag and the audit fields
+	 * cannot be updated.
+	 * 
+	 * @param id
+	 * @param changes
+	 *            the new values by property name
+	 * @return the updated entity, null if no active entity has this id
+	 */
+	T update(ID id, Map<String, Object> changes);
+}
@@ -1,50 +1,136 @@
 package com.adama.api.repository.util.repository.abst;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import org.bson.types.ObjectId;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.domain.Sort.Order;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.BasicQuery;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.data.mongodb.repository.query.MongoEntityInformation;
 import org.springframework.util.Assert;
-import org.springframework.util.ClassUtils;
-import org.springframework.util.ReflectionUtils;
 
+import com.adama.api.domain.util.domain.abst.audit.AuditingEntityAbstract;
 import com.adama.api.domain.util.domain.abst.delete.DeleteEntityAbstract;
+import com.adama.api.domain.util.domain.abst.tenant.TenantEntityAbstract;
+import com.adama.api.domain.util.domain.annotation.CachedEntity;
+import com.adama.api.repository.util.bulk.BulkSaveItem;
+import com.adama.api.repository.util.bulk.BulkSaveOutcome;
+import com.adama.api.repository.util.bulk.BulkSaveResult;
+import com.adama.api.repository.util.bulk.BulkSaveSettings;
+import com.adama.api.repository.util.cache.EntityCache;
+import com.adama.api.repository.util.dbref.DbRefBatchResolver;
+import com.adama.api.repository.util.dbref.DbRefIdentityMap;
+import com.adama.api.repository.util.dirty.EntitySnapshots;
+import com.adama.api.repository.util.metadata.EntityMetadata;
+import com.adama.api.repository.util.monitoring.QueryMonitor;
+import com.adama.api.repository.util.page.CountCache;
+import com.adama.api.repository.util.page.CountFallback;
+import com.adama.api.repository.util.page.CountSettings;
+import com.adama.api.repository.util.page.CountStrategy;
+import com.adama.api.repository.util.page.CountedPage;
+import com.adama.api.repository.util.page.KeysetCursor;
+import com.adama.api.repository.util.page.KeysetPage;
+import com.adama.api.repository.util.page.LookaheadPageRequest;
+import com.adama.api.repository.util.page.PageCountExecutor;
+import com.adama.api.repository.util.page.PageTotal;
 import com.adama.api.repository.util.repository.AdamaMongoRepository;
-import com.mongodb.AggregationOutput;
+import com.adama.api.repository.util.scope.RequestScope;
+import com.adama.api.repository.util.search.AdamaSearchEngine;
+import com.adama.api.repository.util.search.RegexSearchEngine;
+import com.adama.api.repository.util.search.TextIndexSearchEngine;
+import com.adama.api.repository.util.sort.SortPath;
+import com.adama.api.security.SpringSecurityAuditorAware;
+import com.mongodb.AggregationOptions;
 import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.CommandResult;
+import com.mongodb.Cursor;
 import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteResult;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Abstract Repository base implementation for Mongo.
  * 
  */
+@Slf4j
 public abstract class AdamaMongoRepositoryAbstract<T extends DeleteEntityAbstract, ID extends Serializable> implements AdamaMongoRepository<T, ID> {
+	private static final MongoExceptionTranslator EXCEPTION_TRANSLATOR = new MongoExceptionTranslator();
+	// the error of the commands stopped at their max time
+	private static final int EXCEEDED_TIME_LIMIT_CODE = 50;
+	private static final List<String> AUDIT_FIELDS = Arrays.asList(AuditingEntityAbstract.CREATEBY_FIELD_NAME, AuditingEntityAbstract.CREATEDATE_FIELD_NAME,
+			AuditingEntityAbstract.LASTMODIFIEDBY_FIELD_NAME, AuditingEntityAbstract.LASTMODIFIEDDATE_FIELD_NAME);
+	/**
+	 * The fields managed by the repository, they cannot be updated, with the id
+	 * and the version
+	 */
+	private static final Set<String> PROTECTED_FIELDS = new HashSet<>(Arrays.asList(DeleteEntityAbstract.ACTIVE_FIELD_NAME, TenantEntityAbstract.TENANT_FIELD_NAME,
+			AuditingEntityAbstract.CREATEBY_FIELD_NAME, AuditingEntityAbstract.CREATEDATE_FIELD_NAME, AuditingEntityAbstract.LASTMODIFIEDBY_FIELD_NAME,
+			AuditingEntityAbstract.LASTMODIFIEDDATE_FIELD_NAME));
 	public final MongoOperations mongoOperations;
 	public final MongoEntityInformation<T, ID> entityInformation;
+	private ExecutorService countExecutor = PageCountExecutor.getDefaultExecutor();
+	// the overrides of the shared count settings, null to use them
+	private Long countTimeoutInMillis;
+	private CountFallback countFallback;
+	private CountStrategy countStrategy;
+	private final CountCache countCache = new CountCache();
+	// the override of the shared bulk save settings, null to use them
+	private Boolean bulkWriteEnabled;
+	private int bulkChunkSize = 1000;
+	private int streamBatchSize = 500;
+	private AuditorAware<String> auditorAware = new SpringSecurityAuditorAware();
+	private List<AdamaSearchEngine> searchEngineList = Arrays.asList(new TextIndexSearchEngine(), new RegexSearchEngine());
+	private final DbRefBatchResolver dbRefResolver;
 
 	/**
 	 * Creates a new {@link AdamaMongoRepositoryAbstract} for the given
@@ -60,6 +146,7 @@ public abstract class AdamaMongoRepositoryAbstract<T extends DeleteEntityAbstrac
 		Assert.notNull(metadata);
 		this.entityInformation = metadata;
 		this.mongoOperations = mongoOperations;
+		this.dbRefResolver = new DbRefBatchResolver(mongoOperations);
 	}
 
 	@Override
@@ -69,35 +156,229 @@ public abstract class AdamaMongoRepositoryAbstract<T extends DeleteEntityAbstrac
 			entity.setActive(true);
 			mongoOperations.insert(entity, entityInformation.getCollectionName());
 		} else {
+			Object documentId = new QueryMapper(mongoOperations.getConverter()).convertId(entityInformation.getId(entity));
+			Optional<DBObject> snapshot = EntitySnapshots.get(entityInformation.getCollectionName(), documentId, entity);
+			if (snapshot.isPresent() && saveChanges(entity, snapshot.get())) {
+				return entity;
+			}
 			mongoOperations.save(entity, entityInformation.getCollectionName());
 		}
+		countCache.invalidate();
+		invalidateEntityCache(entityInformation.getId(entity));
 		return entity;
 	}
 
+	/**
+	 * Write only the fields changed since the entity was read. The events of
+	 * the template are not sent, so the audit fields and the sort keys are set
+	 * here.
+	 * 
+	 * @return false if the document was not found, it is then saved in full
+	 */
+	private <S extends T> boolean saveChanges(S entity, DBObject snapshot) {
+		DBObject document = new BasicDBObject();
+		mongoOperations.getConverter().write(entity, document);
+		getEntityMetadata().writeSortKeys(document);
+		DBObject set = new BasicDBObject();
+		DBObject unset = new BasicDBObject();
+		document.keySet().stream()//
+				.filter(key -> !snapshot.containsField(key) || !Objects.equals(document.get(key), snapshot.get(key)))//
+				.forEach(key -> set.put(key, document.get(key)));
+		snapshot.keySet().stream()//
+				.filter(key -> !document.containsField(key))//
+				.forEach(key -> unset.put(key, ""));
+		AUDIT_FIELDS.forEach(field -> {
+			set.removeField(field);
+			unset.removeField(field);
+		});
+		if (set.keySet().isEmpty() && unset.keySet().isEmpty()) {
+			// nothing changed, nothing is written
+			return true;
+		}
+		String auditor = auditorAware.getCurrentAuditor();
+		ZonedDateTime now = ZonedDateTime.now();
+		entity.setLastModifiedBy(auditor);
+		entity.setLastModifiedDate(now);
+		set.put(AuditingEntityAbstract.LASTMODIFIEDBY_FIELD_NAME, auditor);
+		set.put(AuditingEntityAbstract.LASTMODIFIEDDATE_FIELD_NAME, mongoOperations.getConverter().convertToMongoType(now));
+		DBObject update = new BasicDBObject();
+		if (!set.keySet().isEmpty()) {
+			update.put("$set", set);
+		}
+		if (!unset.keySet().isEmpty()) {
+			update.put("$unset", unset);
+		}
+		DBObject idQuery = new BasicDBObject("_id", document.get("_id"));
+		DBCollection coll = mongoOperations.getCollection(entityInformation.getCollectionName());
+		WriteResult writeResult = monitor("update", idQuery, this::getTenantScope, () -> getExplain(new BasicDBObject("find", coll.getName()).append("filter", idQuery)),
+				() -> coll.update(idQuery, update));
+		if (writeResult.getN() == 0) {
+			return false;
+		}
+		countCache.invalidate();
+		invalidateEntityCache(entityInformation.getId(entity));
+		// the entity is tracked from its new state
+		set.keySet().forEach(key -> document.put(key, set.get(key)));
+		EntitySnapshots.track(entityInformation.getCollectionName(), document.get("_id"), entity, document);
+		return true;
+	}
+
 	@Override
 	public <S extends T> List<S> save(Iterable<S> entities) {
+		BulkSaveResult<S> result = bulkSave(entities);
+		result.getItems().stream().filter(item -> BulkSaveOutcome.FAILED.equals(item.getOutcome())).findFirst().ifPresent(item -> {
+			throw item.getError();
+		});
+		return result.getEntities();
+	}
+
+	@Override
+	public <S extends T> BulkSaveResult<S> bulkSave(Iterable<S> entities) {
 		Assert.notNull(entities, "The given Iterable of entities not be null!");
-		List<S> result = convertIterableToList(entities);
-		boolean allNew = result.parallelStream().allMatch(entity -> !entityInformation.isNew(entity));
-		if (allNew) {
-			Stream<S> stream = result.parallelStream().peek(entity -> entity.setActive(true));
-			mongoOperations.insertAll(stream.collect(Collectors.toList()));
+		List<S> entityList = convertIterableToList(entities);
+		List<BulkSaveItem<S>> itemList = new ArrayList<>(entityList.size());
+		if (isBulkWriteEnabled() && getEntityMetadata().isBulkWritable()) {
+			for (int from = 0; from < entityList.size(); from += bulkChunkSize) {
+				itemList.addAll(bulkWrite(entityList.subList(from, Math.min(from + bulkChunkSize, entityList.size()))));
+			}
 		} else {
-			result.parallelStream().forEach(entity -> save(entity));
+			// the listeners, the cascade save and the version need the events
+			// of the template
+			entityList.forEach(entity -> itemList.add(saveItem(entity)));
 		}
-		return result;
+		countCache.invalidate();
+		entityList.forEach(entity -> invalidateEntityCache(entityInformation.getId(entity)));
+		return new BulkSaveResult<>(itemList);
+	}
+
+	private <S extends T> BulkSaveItem<S> saveItem(S entity) {
+		BulkSaveOutcome outcome = entityInformation.isNew(entity) ? BulkSaveOutcome.INSERTED : BulkSaveOutcome.UPDATED;
+		try {
+			save(entity);
+			return new BulkSaveItem<>(entity, outcome, null);
+		} catch (RuntimeException e) {
+			return new BulkSaveItem<>(entity, BulkSaveOutcome.FAILED, e);
+		}
+	}
+
+	/**
+	 * Write a chunk of entities in one unordered bulk write. The events of the
+	 * template are not sent, so the id and the audit fields are set here.
+	 */
+	private <S extends T> List<BulkSaveItem<S>> bulkWrite(List<S> chunk) {
+		DBCollection coll = mongoOperations.getCollection(entityInformation.getCollectionName());
+		BulkWriteOperation bulk = coll.initializeUnorderedBulkOperation();
+		String auditor = auditorAware.getCurrentAuditor();
+		ZonedDateTime now = ZonedDateTime.now();
+		boolean[] newEntities = new boolean[chunk.size()];
+		// the filters of the replaced entities, by index in the chunk
+		Map<Integer, DBObject> filterMap = new HashMap<>();
+		QueryMapper queryMapper = new QueryMapper(mongoOperations.getConverter());
+		MongoPersistentEntity<?> persistentEntity = getEntityMetadata().getPersistentEntity();
+		for (int i = 0; i < chunk.size(); i++) {
+			S entity = chunk.get(i);
+			newEntities[i] = entityInformation.isNew(entity);
+			if (newEntities[i]) {
+				entity.setActive(true);
+				entity.setId(new ObjectId().toString());
+				entity.setCreatedBy(auditor);
+				entity.setCreatedDate(now);
+			}
+			entity.setLastModifiedBy(auditor);
+			entity.setLastModifiedDate(now);
+			DBObject document = new BasicDBObject();
+			mongoOperations.getConverter().write(entity, document);
+			getEntityMetadata().writeSortKeys(document);
+			if (newEntities[i]) {
+				bulk.insert(document);
+			} else {
+				// the entity is only replaced in the tenant of the user, a
+				// missing entity is not inserted
+				DBObject filter = queryMapper.getMappedObject(new Query(getIdCriteria(entityInformation.getId(entity))).getQueryObject(), persistentEntity);
+				filterMap.put(i, filter);
+				bulk.find(filter).replaceOne(document);
+			}
+		}
+		BulkWriteResult writeResult;
+		Map<Integer, RuntimeException> errorMap = new HashMap<>();
+		try {
+			writeResult = bulk.execute();
+		} catch (BulkWriteException e) {
+			if (e.getWriteConcernError() != null) {
+				throw translateException(e);
+			}
+			writeResult = e.getWriteResult();
+			e.getWriteErrors().forEach(writeError -> errorMap.put(writeError.getIndex(), translateException(new MongoException(writeError.getCode(), writeError.getMessage()))));
+		}
+		if (writeResult.isAcknowledged() && writeResult.getMatchedCount() < filterMap.size() - errorMap.keySet().stream().filter(filterMap::containsKey).count()) {
+			// the result does not tell which entities were not found, they
+			// are looked for only when some are missing
+			filterMap.forEach((index, filter) -> {
+				if (!errorMap.containsKey(index) && coll.findOne(filter, new BasicDBObject("_id", 1)) == null) {
+					errorMap.put(index, new IllegalArgumentException("Cannot find the entity with the id " + entityInformation.getId(chunk.get(index))));
+				}
+			});
+		}
+		List<BulkSaveItem<S>> itemList = new ArrayList<>(chunk.size());
+		for (int i = 0; i < chunk.size(); i++) {
+			if (errorMap.containsKey(i)) {
+				itemList.add(new BulkSaveItem<>(chunk.get(i), BulkSaveOutcome.FAILED, errorMap.get(i)));
+			} else {
+				itemList.add(new BulkSaveItem<>(chunk.get(i), newEntities[i] ? BulkSaveOutcome.INSERTED : BulkSaveOutcome.UPDATED, null));
+			}
+		}
+		return itemList;
+	}
+
+	private static RuntimeException translateException(MongoException e) {
+		RuntimeException translated = EXCEPTION_TRANSLATOR.translateExceptionIfPossible(e);
+		return translated != null ? translated : e;
 	}
 
 	@Override
 	public abstract T findOne(ID id);
 
+	/**
+	 * Find the entity by id, through the cache of the entity class when it is
+	 * annotated with {@link CachedEntity}
+	 * 
+	 * @param id
+	 * @return the entity, null if not found
+	 */
+	protected T findById(ID id) {
+		Optional<EntityCache> entityCache = EntityCache.forEntity(entityInformation.getJavaType());
+		String tenantScope = getTenantScope();
+		DBObject document = entityCache.flatMap(cache -> cache.get(id, tenantScope)).orElse(null);
+		if (document == null) {
+			long generation = entityCache.map(EntityCache::getGeneration).orElse(0L);
+			DBObject idQuery = new BasicDBObject("_id", new QueryMapper(mongoOperations.getConverter()).convertId(id));
+			DBCollection coll = mongoOperations.getCollection(entityInformation.getCollectionName());
+			document = monitor("find", idQuery, () -> tenantScope, () -> getExplain(new BasicDBObject("find", coll.getName()).append("filter", idQuery)), () -> coll.findOne(idQuery));
+			if (document == null) {
+				return null;
+			}
+			DBObject readDocument = document;
+			entityCache.ifPresent(cache -> cache.put(id, tenantScope, readDocument, generation));
+		}
+		// the references are replaced in a copy, the cached document is kept
+		DBObject copy = new BasicDBObject(document.toMap());
+		return read(Collections.singletonList(copy), () -> tenantScope).get(0);
+	}
+
+	private void invalidateEntityCache(Object id) {
+		EntityCache.forEntity(entityInformation.getJavaType()).ifPresent(entityCache -> entityCache.invalidate(id));
+		Object documentId = new QueryMapper(mongoOperations.getConverter()).convertId(id);
+		DbRefIdentityMap.evict(entityInformation.getCollectionName(), documentId);
+		EntitySnapshots.evict(entityInformation.getCollectionName(), documentId);
+	}
+
 	@Override
 	public boolean exists(ID id) {
 		Assert.notNull(id, "The given id must not be null!");
 		Query query = new Query(getIdCriteria(id));
 		Class<T> entityClass = entityInformation.getJavaType();
 		String collectionName = entityInformation.getCollectionName();
-		return mongoOperations.exists(query, entityClass, collectionName);
+		return monitor("exists", query.getQueryObject(), this::getTenantScope, () -> getFindExplain(query.limit(1)), () -> mongoOperations.exists(query, entityClass, collectionName));
 	}
 
 	@Override
@@ -108,10 +389,12 @@ public abstract class AdamaMongoRepositoryAbstract<T extends DeleteEntityAbstrac
 	@Override
 	public void delete(ID id) {
 		Assert.notNull(id, "The given id must not be null!");
-		T entity = findOne(id);
-		Assert.notNull(entity, "Cannot find the entity with this id!");
-		entity.setActive(false);
-		save(entity);
+		// an entity already deleted is not found
+		Query query = new Query(getIdCriteria(id).and(DeleteEntityAbstract.ACTIVE_FIELD_NAME).is(true));
+		WriteResult writeResult = mongoOperations.updateFirst(query, getDeleteUpdate(), entityInformation.getJavaType(), entityInformation.getCollectionName());
+		Assert.isTrue(writeResult.getN() > 0, "Cannot find the entity with this id!");
+		countCache.invalidate();
+		invalidateEntityCache(id);
 	}
 
 	@Override
@@ -123,12 +406,80 @@ public abstract class AdamaMongoRepositoryAbstract<T extends DeleteEntityAbstrac
 	@Override
 	public void delete(Iterable<? extends T> entities) {
 		Assert.notNull(entities, "The given Iterable of entities not be null!");
-		entities.forEach(entity -> delete(entity));
+		List<ID> idList = StreamSupport.stream(entities.spliterator(), false).map(entity -> entityInformation.getId(entity)).collect(Collectors.toList());
+		if (!idList.isEmpty()) {
+			Query query = new Query(Criteria.where(entityInformation.getIdAttribute()).in(idList)).addCriteria(getFilterCriteria());
+			mongoOperations.updateMulti(query, getDeleteUpdate(), entityInformation.getJavaType(), entityInformation.getCollectionName());
+			countCache.invalidate();
+			idList.forEach(this::invalidateEntityCache);
+		}
 	}
 
 	@Override
 	public void deleteAll() {
-		mongoOperations.findAll(entityInformation.getJavaType()).parallelStream().forEach(entity -> delete(entity));
+		mongoOperations.updateMulti(new Query(getFilterCriteria()), getDeleteUpdate(), entityInformation.getJavaType(), entityInformation.getCollectionName());
+		countCache.invalidate();
+		EntityCache.forEntity(entityInformation.getJavaType()).ifPresent(EntityCache::clear);
+		DbRefIdentityMap.evictAll(entityInformation.getCollectionName());
+		EntitySnapshots.evictAll(entityInformation.getCollectionName());
+	}
+
+	@Override
+	public T update(ID id, Map<String, Object> changes) {
+		Assert.notNull(id, "The given id must not be null!");
+		Assert.notEmpty(changes, "The changes must not be empty!");
+		EntityMetadata entityMetadata = getEntityMetadata();
+		MongoPersistentEntity<?> persistentEntity = entityMetadata.getPersistentEntity();
+		Update update = new Update();
+		changes.forEach((property, value) -> {
+			Assert.isTrue(!isProtectedProperty(property, entityMetadata) && entityMetadata.hasProperty(property), "Cannot update the field " + property);
+			String fieldName = entityMetadata.getFieldName(property);
+			String sortKeyFieldName = entityMetadata.getSortKeyFields().get(fieldName);
+			if (value == null) {
+				update.unset(property);
+				if (sortKeyFieldName != null) {
+					update.unset(sortKeyFieldName);
+				}
+			} else {
+				update.set(property, value);
+				if (sortKeyFieldName != null && value instanceof String) {
+					update.set(sortKeyFieldName, ((String) value).toLowerCase(Locale.ROOT));
+				}
+			}
+		});
+		update.set(AuditingEntityAbstract.LASTMODIFIEDBY_FIELD_NAME, auditorAware.getCurrentAuditor())//
+				.set(AuditingEntityAbstract.LASTMODIFIEDDATE_FIELD_NAME, new Date());
+		if (persistentEntity.hasVersionProperty()) {
+			update.inc(persistentEntity.getVersionProperty().getFieldName(), 1);
+		}
+		Query query = new Query(getIdCriteria(id).and(DeleteEntityAbstract.ACTIVE_FIELD_NAME).is(true));
+		T entity = monitor("findAndModify", query.getQueryObject(), this::getTenantScope, () -> getFindExplain(query), () -> mongoOperations.findAndModify(query, update,
+				FindAndModifyOptions.options().returnNew(true), entityInformation.getJavaType(), entityInformation.getCollectionName()));
+		if (entity != null) {
+			countCache.invalidate();
+			invalidateEntityCache(id);
+		}
+		return entity;
+	}
+
+	/**
+	 * Is the property managed by the repository: the id, the audit fields and
+	 * the version, which is incremented by each update
+	 */
+	private static boolean isProtectedProperty(String property, EntityMetadata entityMetadata) {
+		MongoPersistentEntity<?> persistentEntity = entityMetadata.getPersistentEntity();
+		return PROTECTED_FIELDS.contains(entityMetadata.getFieldName(property)) || (persistentEntity.hasIdProperty() && persistentEntity.getIdProperty().getName().equals(property))
+				|| (persistentEntity.hasVersionProperty() && persistentEntity.getVersionProperty().getName().equals(property));
+	}
+
+	/**
+	 * Get the update of a soft delete: the entity is inactive and its audit
+	 * fields are updated
+	 */
+	private Update getDeleteUpdate() {
+		return new Update().set(DeleteEntityAbstract.ACTIVE_FIELD_NAME, false)//
+				.set(AuditingEntityAbstract.LASTMODIFIEDBY_FIELD_NAME, auditorAware.getCurrentAuditor())//
+				.set(AuditingEntityAbstract.LASTMODIFIEDDATE_FIELD_NAME, new Date());
 	}
 
 	@Override
@@ -136,6 +487,7 @@ public abstract class AdamaMongoRepositoryAbstract<T extends DeleteEntityAbstrac
 		Assert.notNull(entity, "Entity must not be null!");
 		entity.setActive(true);
 		mongoOperations.insert(entity, entityInformation.getCollectionName());
+		countCache.invalidate();
 		return entity;
 	}
 
@@ -147,34 +499,77 @@ public abstract class AdamaMongoRepositoryAbstract<T extends DeleteEntityAbstrac
 			Stream<S> stream = list.parallelStream().peek(entity -> entity.setActive(true));
 			mongoOperations.insertAll(stream.collect(Collectors.toList()));
 		}
+		countCache.invalidate();
 		return list;
 	}
 
 	@Override
 	public Page<T> search(String key, final Pageable pageable) {
-		Field[] allFields = entityInformation.getJavaType().getDeclaredFields();
-		List<Criteria> criterias = new ArrayList<>();
+		return search(key, pageable, Collections.emptySet());
+	}
+
+	@Override
+	public Page<T> search(String key, final Pageable pageable, Set<String> fields) {
 		Page<T> result;
 		if (key != null && !key.isEmpty()) {
 			Assert.notNull(pageable, "pageable must not be null!");
-			Arrays.asList(allFields).stream().filter(field -> !ClassUtils.isPrimitiveOrWrapper(field.getType()) && Modifier.isPrivate(field.getModifiers()))
-					.forEach(field -> criterias.add(Criteria.where(field.getName()).regex(key, "i")));
-			Query query = new Query();
-			query.addCriteria(new Criteria().orOperator(criterias.toArray(new Criteria[criterias.size()]))).with(pageable);
-			Optional<Query> queryPageable = Optional.ofNullable(query);
+			Query query = withFields(getSearchQuery(key, pageable.getSort()), fields).with(pageable).addCriteria(getFilterCriteria());
 			Optional<Sort> sortPageable = Optional.ofNullable(pageable.getSort());
 			Optional<Pageable> pageableSort = Optional.ofNullable(pageable);
-			List<T> list = findAll(queryPageable, sortPageable, pageableSort);
-			Long count = count(query);
-			result = new PageImpl<>(list, pageable, count);
+			result = findPage(query, sortPageable, pageableSort);
 		} else {
 			Optional<Query> queryPageable = Optional.empty();
+			Optional<Sort> sortOptional = Optional.empty();
 			Optional<Pageable> pageableSort = Optional.ofNullable(pageable);
-			result = findAllQueryPageable(queryPageable, pageableSort);
+			result = findAllQueryPageable(queryPageable, sortOptional, pageableSort, fields);
 		}
 		return result;
 	}
 
+	@Override
+	public Slice<T> searchSlice(String key, final Pageable pageable) {
+		return searchSlice(key, pageable, Collections.emptySet());
+	}
+
+	@Override
+	public Slice<T> searchSlice(String key, final Pageable pageable, Set<String> fields) {
+		Assert.notNull(pageable, "pageable must not be null!");
+		Optional<Sort> sortOptional = Optional.ofNullable(pageable.getSort());
+		if (key != null && !key.isEmpty()) {
+			Query query = withFields(getSearchQuery(key, pageable.getSort()), fields).addCriteria(getFilterCriteria());
+			return findSlice(query, sortOptional, pageable);
+		}
+		Optional<Query> queryOptional = Optional.empty();
+		return findAllQuerySlice(queryOptional, sortOptional, pageable, fields);
+	}
+
+	/**
+	 * Read only the given fields of the entities, all of them when the set is
+	 * empty
+	 */
+	private Query withFields(Query query, Set<String> fields) {
+		Assert.notNull(fields, "fields must not be null!");
+		EntityMetadata entityMetadata = getEntityMetadata();
+		fields.forEach(field -> {
+			Assert.isTrue(entityMetadata.hasProperty(field), "Cannot read the field " + field);
+			query.fields().include(field);
+		});
+		return query;
+	}
+
+	/**
+	 * Get the query of the search from the first search engine supporting the
+	 * entity
+	 */
+	private Query getSearchQuery(String key, Sort sort) {
+		EntityMetadata entityMetadata = getEntityMetadata();
+		AdamaSearchEngine searchEngine = searchEngineList.stream()//
+				.filter(engine -> engine.supports(entityMetadata))//
+				.findFirst()//
+				.orElseThrow(() -> new IllegalStateException("No search engine for the entity " + entityInformation.getJavaType().getName()));
+		return searchEngine.createQuery(entityMetadata, key, sort);
+	}
+
 	@Override
 	public T findOne(Optional<Query> query) {
 		return query.map(myquery -> mongoOperations.findOne(myquery, entityInformation.getJavaType(), entityInformation.getCollectionName())).orElse(null);
@@ -214,17 +609,10 @@ public abstract class AdamaMongoRepositoryAbstract<T extends DeleteEntityAbstrac
 
 	@Override
 	public Page<T> findAll(final Pageable pageable) {
-		// query
-		Query query = new Query();
-		Optional<Query> queryOptional = Optional.ofNullable(query.with(pageable));
+		Query query = new Query().with(pageable).addCriteria(getFilterCriteria());
 		Optional<Sort> sortOptional = Optional.ofNullable(pageable.getSort());
 		Optional<Pageable> pageableOptional = Optional.ofNullable(pageable);
-		List<T> list = findAll(queryOptional, sortOptional, pageableOptional);
-		// count
-		Query queryCount = new Query(getFilterCriteria());
-		Long count = count(queryCount);
-		// result
-		return new PageImpl<>(list, pageable, count);
+		return findPage(query, sortOptional, pageableOptional);
 	}
 
 	@Override
@@ -237,171 +625,709 @@ public abstract class AdamaMongoRepositoryAbstract<T extends DeleteEntityAbstrac
 
 	@Override
 	public Page<T> findAllQueryPageable(Optional<Query> queryOptional, Optional<Pageable> pageableOptional) {
-		// query
 		Optional<Sort> sortOptional = Optional.empty();
-		List<T> list = findAll(queryOptional, sortOptional, pageableOptional);
-		// count
-		Query countQuery = queryOptional.orElse(new Query().addCriteria(getFilterCriteria()));
-		Long count = count(countQuery);
-		// result
-		return new PageImpl<>(list, pageableOptional.orElse(null), count);
+		return findAllQueryPageable(queryOptional, sortOptional, pageableOptional);
 	}
 
 	public Page<T> findAllQueryPageable(Optional<Query> queryOptional, Optional<Sort> sortOptional, Optional<Pageable> pageableOptional) {
-		// query
-		List<T> list = findAll(queryOptional, sortOptional, pageableOptional);
-		// count
-		Query countQuery = queryOptional.orElse(new Query().addCriteria(getFilterCriteria()));
-		Long count = count(countQuery);
-		// result
-		return new PageImpl<>(list, pageableOptional.orElse(null), count);
+		return findAllQueryPageable(queryOptional, sortOptional, pageableOptional, Collections.emptySet());
+	}
+
+	@Override
+	public Page<T> findAllQueryPageable(Optional<Query> queryOptional, Optional<Sort> sortOptional, Optional<Pageable> pageableOptional, Set<String> fields) {
+		Query query = withFields(queryOptional.orElse(new Query()), fields).addCriteria(getFilterCriteria());
+		return findPage(query, sortOptional, pageableOptional);
+	}
+
+	@Override
+	public Slice<T> findAllQuerySlice(Optional<Query> queryOptional, Optional<Sort> sortOptional, Pageable pageable) {
+		return findAllQuerySlice(queryOptional, sortOptional, pageable, Collections.emptySet());
+	}
+
+	@Override
+	public Slice<T> findAllQuerySlice(Optional<Query> queryOptional, Optional<Sort> sortOptional, Pageable pageable, Set<String> fields) {
+		Assert.notNull(pageable, "pageable must not be null!");
+		Query query = withFields(queryOptional.orElse(new Query()), fields).addCriteria(getFilterCriteria());
+		return findSlice(query, sortOptional, pageable);
+	}
+
+	/**
+	 * Read the slice of the filtered query with one more entity to know if
+	 * there is a next slice, without count
+	 */
+	private Slice<T> findSlice(Query query, Optional<Sort> sortOptional, Pageable pageable) {
+		Optional<Pageable> lookaheadOptional = Optional.of(new LookaheadPageRequest(pageable));
+		List<T> list = findAllFiltered(query, sortOptional, lookaheadOptional);
+		boolean hasNext = list.size() > pageable.getPageSize();
+		return new SliceImpl<>(hasNext ? list.subList(0, pageable.getPageSize()) : list, pageable, hasNext);
+	}
+
+	/**
+	 * Read the page of the filtered query while its count is run on the count
+	 * executor
+	 */
+	private Page<T> findPage(Query query, Optional<Sort> sortOptional, Optional<Pageable> pageableOptional) {
+		// the count query and its cache key are built before the query is read
+		// by the page
+		DBObject countObject = query.getQueryObject();
+		String tenantScope = getTenantScope();
+		String cacheKey = CountCache.getKey(countObject, tenantScope);
+		Future<PageTotal> countFuture = countExecutor.submit(() -> countTotal(countObject, cacheKey, tenantScope));
+		List<T> list;
+		try {
+			list = findAllFiltered(query, sortOptional, pageableOptional);
+		} catch (RuntimeException e) {
+			countFuture.cancel(false);
+			throw e;
+		}
+		Pageable pageable = pageableOptional.orElse(null);
+		return new CountedPage<>(list, pageable, getTotal(countFuture, pageable, list));
+	}
+
+	private PageTotal countTotal(DBObject countObject, String cacheKey, String tenantScope) {
+		if (CountStrategy.ESTIMATED_WHEN_UNFILTERED.equals(getCountStrategy()) && countObject.keySet().equals(Collections.singleton(DeleteEntityAbstract.ACTIVE_FIELD_NAME))) {
+			// the count of the collection is read from its metadata, it
+			// includes the deleted entities
+			return new PageTotal(mongoOperations.getCollection(entityInformation.getCollectionName()).getCount(), false);
+		}
+		Optional<Long> cachedCount = countCache.get(cacheKey);
+		if (cachedCount.isPresent()) {
+			return new PageTotal(cachedCount.get(), false);
+		}
+		long generation = countCache.getGeneration();
+		long count = count(new BasicQuery(countObject), () -> tenantScope, getCountTimeoutInMillis());
+		countCache.put(cacheKey, count, generation);
+		return new PageTotal(count, true);
+	}
+
+	private PageTotal getTotal(Future<PageTotal> countFuture, Pageable pageable, List<T> list) {
+		long timeoutInMillis = getCountTimeoutInMillis();
+		try {
+			return countFuture.get(timeoutInMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			// the count is interrupted on the executor and stopped by the
+			// server at its max time
+			countFuture.cancel(true);
+			return getTimeoutTotal(new QueryTimeoutException("The count of " + entityInformation.getCollectionName() + " took more than " + timeoutInMillis + "ms", e), pageable, list);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			countFuture.cancel(true);
+			throw new QueryTimeoutException("The count of " + entityInformation.getCollectionName() + " has been interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof QueryTimeoutException) {
+				// the server reached the max time first
+				return getTimeoutTotal((QueryTimeoutException) e.getCause(), pageable, list);
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private PageTotal getTimeoutTotal(QueryTimeoutException exception, Pageable pageable, List<T> list) {
+		if (CountFallback.ERROR.equals(getCountFallback())) {
+			throw exception;
+		}
+		log.warn("Cannot count {}, the total is a lower bound: {}", entityInformation.getCollectionName(), exception.getMessage());
+		long total = list.size();
+		if (pageable != null) {
+			total += pageable.getOffset();
+			if (list.size() == pageable.getPageSize()) {
+				total++;
+			}
+		}
+		return new PageTotal(total, false);
+	}
+
+	@Override
+	public KeysetPage<T> findAllByCursor(Optional<Query> queryOptional, Pageable pageable, Optional<String> cursor) {
+		Assert.notNull(pageable, "pageable must not be null!");
+		List<Order> orderList = getKeysetOrderList(pageable.getSort());
+		Query query = queryOptional.orElse(new Query());
+		Optional<KeysetCursor> keysetCursor = cursor.filter(token -> !token.isEmpty()).map(KeysetCursor::decode);
+		if (keysetCursor.isPresent()) {
+			// the query can already have its own $or, the criteria of the
+			// cursor are put beside it in a $and
+			DBObject queryObject = new BasicDBObject("$and", Arrays.asList(query.getQueryObject(), getKeysetCriteria(orderList, keysetCursor.get()).getCriteriaObject()));
+			query = new BasicQuery(queryObject, query.getFieldsObject());
+		}
+		query.addCriteria(getFilterCriteria());
+		// we read one more entity to know if there is a next slice
+		query.with(new Sort(orderList)).limit(pageable.getPageSize() + 1);
+		List<T> list = find(query);
+		boolean hasNext = list.size() > pageable.getPageSize();
+		List<T> content = hasNext ? list.subList(0, pageable.getPageSize()) : list;
+		String nextCursor = hasNext ? getKeysetCursor(orderList, content.get(content.size() - 1)).encode() : null;
+		return new KeysetPage<>(content, pageable, hasNext, nextCursor);
 	}
 
 	public List<T> findAll(Optional<Query> queryOptional, Optional<Sort> sortOptional, Optional<Pageable> pageableOptional) {
-		// get the list of sorting with primitive field
-		List<Order> orderPrimitiveList = sortOptional//
-				.map(//
-				mySortQuery -> StreamSupport.stream(mySortQuery.spliterator(), false)//
-						.filter(order -> isTheFieldExistAndIsPrimitive(order.getProperty()))//
-						.collect(Collectors.toList()) //
-				)//
-				.orElse(Collections.emptyList());
-		// get the list of sorting with DBRef field
-		List<Order> orderDBRefList = sortOptional//
-				.map(//
-				mySortQuery -> StreamSupport.stream(mySortQuery.spliterator(), false)//
-						.filter(order -> isTheFieldExistAndIsDBRef(order.getProperty()))//
-						.collect(Collectors.toList()))//
-				.orElse(Collections.emptyList());
+		return findAll(queryOptional, sortOptional, pageableOptional, Collections.emptySet());
+	}
+
+	@Override
+	public List<T> findAll(Optional<Query> queryOptional, Optional<Sort> sortOptional, Optional<Pageable> pageableOptional, Set<String> fields) {
+		Query query = withFields(queryOptional.orElse(new Query()), fields).addCriteria(getFilterCriteria());
+		return findAllFiltered(query, sortOptional, pageableOptional);
+	}
+
+	@Override
+	public Stream<T> stream(Optional<Query> queryOptional, Optional<Sort> sortOptional) {
 		Query query = queryOptional.orElse(new Query()).addCriteria(getFilterCriteria());
-		if (orderDBRefList.isEmpty() && orderPrimitiveList.isEmpty()) {
+		EntityMetadata entityMetadata = getEntityMetadata();
+		Optional<Pageable> pageableOptional = Optional.empty();
+		List<Order> orderList = getOrderList(sortOptional, pageableOptional);
+		List<SortPath> sortPathList = orderList.stream().map(order -> entityMetadata.getSortPath(order.getProperty())).collect(Collectors.toList());
+		String tenantScope = getTenantScope();
+		long start = System.currentTimeMillis();
+		String operation;
+		Object monitoredQuery;
+		Supplier<DBObject> explainCommand;
+		Cursor cursor;
+		Function<DBObject, DBObject> documentReader;
+		if (sortPathList.stream().noneMatch(SortPath::needsAggregation)) {
+			sortOptional.ifPresent(query::with);
+			operation = "find";
+			monitoredQuery = query.getQueryObject();
+			explainCommand = () -> getFindExplain(query);
+			cursor = openCursor(query).batchSize(streamBatchSize);
+			documentReader = document -> document;
+		} else {
+			List<DBObject> pipe = getSortPipeline(query, orderList, sortPathList, pageableOptional);
+			operation = "aggregate";
+			monitoredQuery = pipe;
+			explainCommand = () -> getAggregateExplain(pipe);
+			cursor = aggregate(pipe, streamBatchSize);
+			// the documents are read out of the projection of the sort
+			documentReader = document -> (DBObject) document.get("doc");
+		}
+		// only the time spent reading the cursor is monitored, not the time
+		// spent by the consumer of the stream
+		long[] readTimeInMillis = { System.currentTimeMillis() - start };
+		// the references of each batch of documents are resolved together
+		Iterator<List<DBObject>> batchIterator = new Iterator<List<DBObject>>() {
+			@Override
+			public boolean hasNext() {
+				long readStart = System.currentTimeMillis();
+				boolean hasNext = cursor.hasNext();
+				readTimeInMillis[0] += System.currentTimeMillis() - readStart;
+				return hasNext;
+			}
+
+			@Override
+			public List<DBObject> next() {
+				long readStart = System.currentTimeMillis();
+				if (!cursor.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				List<DBObject> batch = new ArrayList<>(streamBatchSize);
+				while (batch.size() < streamBatchSize && cursor.hasNext()) {
+					batch.add(documentReader.apply(cursor.next()));
+				}
+				readTimeInMillis[0] += System.currentTimeMillis() - readStart;
+				return batch;
+			}
+		};
+		Spliterator<List<DBObject>> spliterator = Spliterators.spliteratorUnknownSize(batchIterator, Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false)//
+				.flatMap(batch -> dbRefResolver.read(entityInformation.getJavaType(), batch, entityMetadata, () -> tenantScope).stream())//
+				.onClose(() -> {
+					cursor.close();
+					record(operation, monitoredQuery, () -> tenantScope, explainCommand, readTimeInMillis[0]);
+				});
+	}
+
+	private List<T> findAllFiltered(Query query, Optional<Sort> sortOptional, Optional<Pageable> pageableOptional) {
+		EntityMetadata entityMetadata = getEntityMetadata();
+		List<Order> orderList = getOrderList(sortOptional, pageableOptional);
+		List<SortPath> sortPathList = orderList.stream().map(order -> entityMetadata.getSortPath(order.getProperty())).collect(Collectors.toList());
+		if (sortPathList.stream().noneMatch(SortPath::needsAggregation)) {
+			// the sort can use the indexes of the collection
 			if (sortOptional.isPresent()) {
 				query.with(sortOptional.get());
 			}
 			if (pageableOptional.isPresent()) {
 				query.with(pageableOptional.get());
 			}
-			return mongoOperations.find(query, entityInformation.getJavaType(), entityInformation.getCollectionName());
+			return find(query);
 		}
-		Optional<Query> fitlerQuery = Optional.of(query);
-		// FIXME sort: works for only one criteria
-		// FIXME sort: for multi-criteria the sort is not specialized
-		// (citeria 1, than 2 if entities both have same criteria 1)
-		Set<T> result = new HashSet<>();
-		if (!orderDBRefList.isEmpty()) {
-			orderDBRefList.forEach(order -> result.addAll(findAllWithDBRef(fitlerQuery, order)));
+		return findAllWithAggregation(query, orderList, sortPathList, pageableOptional);
+	}
+
+	private List<T> find(Query query) {
+		List<DBObject> documentList = monitor("find", query.getQueryObject(), this::getTenantScope, () -> getFindExplain(query), () -> {
+			List<DBObject> result = new ArrayList<>();
+			try (DBCursor cursor = openCursor(query)) {
+				cursor.forEach(result::add);
+			}
+			return result;
+		});
+		return read(documentList, this::getTenantScope);
+	}
+
+	/**
+	 * Read the documents as entities, with their references resolved in batch.
+	 * The documents of the dirty tracked entities are kept as read.
+	 */
+	private List<T> read(List<DBObject> documentList, Supplier<String> tenantScope) {
+		EntityMetadata entityMetadata = getEntityMetadata();
+		if (!entityMetadata.isDirtyTracked() || !RequestScope.isActive()) {
+			// without request scope the entities are saved in full
+			return dbRefResolver.read(entityInformation.getJavaType(), documentList, entityMetadata, tenantScope);
 		}
-		if (!orderPrimitiveList.isEmpty()) {
-			result.addAll(sortPrimitiveWithCaseInsensitive(fitlerQuery, orderPrimitiveList, pageableOptional));
+		// the snapshots are copied before the references are resolved
+		List<DBObject> snapshotList = documentList.stream().map(document -> (DBObject) new BasicDBObject(document.toMap())).collect(Collectors.toList());
+		List<T> entityList = dbRefResolver.read(entityInformation.getJavaType(), documentList, entityMetadata, tenantScope);
+		for (int i = 0; i < entityList.size(); i++) {
+			EntitySnapshots.track(entityInformation.getCollectionName(), snapshotList.get(i).get("_id"), entityList.get(i), snapshotList.get(i));
 		}
-		return result.stream().collect(Collectors.toList());
+		return entityList;
 	}
 
-	private List<T> sortPrimitiveWithCaseInsensitive(Optional<Query> query, List<Order> orderPrimitiveList, Optional<Pageable> pageable) {
-		DBCollection coll = mongoOperations.getCollection(entityInformation.getCollectionName());
+	/**
+	 * Open a cursor on the mapped query, the documents are read raw so their
+	 * references can be resolved in batch
+	 */
+	private DBCursor openCursor(Query query) {
+		MongoPersistentEntity<?> persistentEntity = getEntityMetadata().getPersistentEntity();
+		QueryMapper queryMapper = new QueryMapper(mongoOperations.getConverter());
+		DBObject fields = query.getFieldsObject() == null ? null : queryMapper.getMappedObject(query.getFieldsObject(), persistentEntity);
+		DBCursor cursor = mongoOperations.getCollection(entityInformation.getCollectionName())//
+				.find(queryMapper.getMappedObject(query.getQueryObject(), persistentEntity), fields)//
+				.skip(query.getSkip())//
+				.limit(query.getLimit());
+		if (query.getSortObject() != null) {
+			cursor.sort(getMappedSort(query, queryMapper));
+		}
+		if (query.getHint() != null) {
+			cursor.hint(query.getHint());
+		}
+		return cursor;
+	}
+
+	/**
+	 * Get the orders of the sort followed by the orders of the page not already
+	 * sorted
+	 */
+	private List<Order> getOrderList(Optional<Sort> sortOptional, Optional<Pageable> pageableOptional) {
+		List<Order> orderList = new ArrayList<>();
+		Stream.of(sortOptional.orElse(null), pageableOptional.map(Pageable::getSort).orElse(null))//
+				.filter(sort -> sort != null)//
+				.forEach(sort -> sort.forEach(order -> {
+					if (orderList.stream().noneMatch(existing -> existing.getProperty().equals(order.getProperty()))) {
+						orderList.add(order);
+					}
+				}));
+		return orderList;
+	}
+
+	/**
+	 * Sort in one aggregation: the referenced entities are joined with $lookup,
+	 * a key is projected for each order, lower cased for the strings, then the
+	 * documents are sorted on the keys in the order of the sort and paginated
+	 * by the server. Needs MongoDB 3.4.4 or later.
+	 */
+	private List<T> findAllWithAggregation(Query query, List<Order> orderList, List<SortPath> sortPathList, Optional<Pageable> pageable) {
+		List<DBObject> pipe = getSortPipeline(query, orderList, sortPathList, pageable);
+		// the documents are read in the monitor, the cursor only runs the
+		// first batch
+		List<DBObject> documentList = monitor("aggregate", pipe, this::getTenantScope, () -> getAggregateExplain(pipe), () -> {
+			List<DBObject> result = new ArrayList<>();
+			Cursor cursor = aggregate(pipe, null);
+			try {
+				cursor.forEachRemaining(document -> result.add((DBObject) document.get("doc")));
+			} finally {
+				cursor.close();
+			}
+			return result;
+		});
+		return read(documentList, this::getTenantScope);
+	}
+
+	private List<DBObject> getSortPipeline(Query query, List<Order> orderList, List<SortPath> sortPathList, Optional<Pageable> pageable) {
 		List<DBObject> pipe = new ArrayList<>();
-		query.ifPresent(myQuery -> {
-			DBObject match = new BasicDBObject();
-			match.put("$match", myQuery.getQueryObject());
-			pipe.add(match);
+		pipe.add(new BasicDBObject("$match", new QueryMapper(mongoOperations.getConverter()).getMappedObject(query.getQueryObject(), getEntityMetadata().getPersistentEntity())));
+		DBObject refflds = new BasicDBObject("doc", "$$ROOT");
+		List<DBObject> lookupList = new ArrayList<>();
+		sortPathList.stream().filter(SortPath::isDbRef).forEach(sortPath -> {
+			String refName = "ref" + sortPath.getDbRefProperty().getName();
+			String lookupName = "lookup" + sortPath.getDbRefProperty().getName();
+			if (!refflds.containsField(refName)) {
+				// the id of a DBRef cannot be used as a local field, it is
+				// projected out of the reference
+				DBObject refVars = new BasicDBObject("ref", new BasicDBObject("$objectToArray", "$" + sortPath.getDbRefProperty().getFieldName()));
+				DBObject refIn = new BasicDBObject("$arrayElemAt", Arrays.asList("$$ref.v", 1));
+				refflds.put(refName, new BasicDBObject("$let", new BasicDBObject("vars", refVars).append("in", refIn)));
+				DBObject lookup = new BasicDBObject("from", sortPath.getDbRefCollection()).append("localField", refName).append("foreignField", "_id").append("as", lookupName);
+				lookupList.add(new BasicDBObject("$lookup", lookup));
+				lookupList.add(new BasicDBObject("$unwind", new BasicDBObject("path", "$" + lookupName).append("preserveNullAndEmptyArrays", true)));
+			}
 		});
-		DBObject prjflds = new BasicDBObject();
-		prjflds.put("doc", "$$ROOT");
-		orderPrimitiveList.stream().forEach(order -> prjflds.put("insensitive" + order.getProperty(), new BasicDBObject("$toLower", "$" + order.getProperty())));
-		DBObject project = new BasicDBObject();
-		project.put("$project", prjflds);
-		pipe.add(project);
+		// without lookup the keys are projected from the document itself
+		String documentPrefix = lookupList.isEmpty() ? "$" : "$doc.";
+		DBObject keyflds = new BasicDBObject("doc", lookupList.isEmpty() ? "$$ROOT" : 1);
+		if (query.getFieldsObject() != null && !query.getFieldsObject().keySet().isEmpty()) {
+			// only the projected fields are kept in the document
+			DBObject docflds = new BasicDBObject("_id", documentPrefix + "_id");
+			query.getFieldsObject().keySet().forEach(field -> docflds.put(getEntityMetadata().getFieldName(field), documentPrefix + getEntityMetadata().getFieldName(field)));
+			keyflds.put("doc", docflds);
+		}
 		DBObject sortflds = new BasicDBObject();
-		orderPrimitiveList.stream().forEach(order -> sortflds.put("insensitive" + order.getProperty(), Direction.ASC.equals(order.getDirection()) ? 1 : -1));
-		DBObject sort = new BasicDBObject();
-		sort.put("$sort", sortflds);
-		pipe.add(sort);
+		for (int i = 0; i < sortPathList.size(); i++) {
+			SortPath sortPath = sortPathList.get(i);
+			String value = sortPath.isDbRef() ? "$lookup" + sortPath.getDbRefProperty().getName() + "." + sortPath.getSortFieldName() : documentPrefix + sortPath.getSortFieldName();
+			keyflds.put("key" + i, sortPath.needsLowerCase() ? new BasicDBObject("$toLower", value) : value);
+			sortflds.put("key" + i, Direction.ASC.equals(orderList.get(i).getDirection()) ? 1 : -1);
+		}
+		// the id keeps the order stable between the pages
+		sortflds.put("doc._id", 1);
+		if (!lookupList.isEmpty()) {
+			pipe.add(new BasicDBObject("$project", refflds));
+			pipe.addAll(lookupList);
+		}
+		pipe.add(new BasicDBObject("$project", keyflds));
+		pipe.add(new BasicDBObject("$sort", sortflds));
 		pageable.ifPresent(myPage -> {
-			DBObject skip = new BasicDBObject();
-			skip.put("$skip", myPage.getOffset());
-			pipe.add(skip);
-			DBObject limit = new BasicDBObject();
-			limit.put("$limit", myPage.getPageSize());
-			pipe.add(limit);
-		});
-		AggregationOutput agg = coll.aggregate(pipe);
-		Stream<T> map = StreamSupport.stream(agg.results().spliterator(), true).map(result -> mongoOperations.getConverter().read(entityInformation.getJavaType(), (DBObject) result.get("doc")));
-		return map.collect(Collectors.toList());
-	}
-
-	private List<T> findAllWithDBRef(Optional<Query> query, Order order) {
-		Query queryFull = new Query();
-		query.ifPresent(myQuery -> {
-			for (String key : myQuery.getQueryObject().keySet()) {
-				Object object = myQuery.getQueryObject().get(key);
-				Criteria criteria = Criteria.where(key).is(object);
-				queryFull.addCriteria(criteria);
-			}
+			pipe.add(new BasicDBObject("$skip", myPage.getOffset()));
+			pipe.add(new BasicDBObject("$limit", myPage.getPageSize()));
 		});
-		List<T> fullEntityList = mongoOperations.find(queryFull, entityInformation.getJavaType(), entityInformation.getCollectionName());
-		int index = order.getProperty().indexOf(".");
-		String dbRefFieldName = order.getProperty().substring(0, index);
-		String fieldToSortInDBRef = order.getProperty().substring(index + 1);
-		Field dbRefField = ReflectionUtils.findField(entityInformation.getJavaType(), dbRefFieldName);
-		ReflectionUtils.makeAccessible(dbRefField);
-		List<Object> entityDBRefObjectList = fullEntityList.parallelStream().map(entity -> {
-			try {
-				return dbRefField.get(entity);
-			} catch (IllegalArgumentException | IllegalAccessException e) {
-				return null;
-			}
-		}).filter(myObject -> myObject != null).collect(Collectors.toList());
-		if (entityDBRefObjectList != null && entityDBRefObjectList.size() != 0) {
-			Class<? extends Object> myClass = entityDBRefObjectList.get(0).getClass();
-			List<String> entityDBRefIdList = entityDBRefObjectList.stream().map(object -> (DeleteEntityAbstract.class.cast(object)).getId()).collect(Collectors.toList());
-			// TODO add the sort to this function
-			List<? extends Object> dbRefList = mongoOperations.find(
-					queryFull.addCriteria(Criteria.where(DeleteEntityAbstract.ID_FIELD_NAME).in(entityDBRefIdList)).with(new Sort(order.getDirection(), fieldToSortInDBRef)), myClass);
-			Collections.sort(fullEntityList, new Comparator<T>() {
-				@Override
-				public int compare(T left, T right) {
-					try {
-						return Integer.compare(dbRefList.indexOf(dbRefField.get(left)), dbRefList.indexOf(dbRefField.get(right)));
-					} catch (IllegalArgumentException | IllegalAccessException e) {
-						return 0;
-					}
-				}
-			});
+		return pipe;
+	}
+
+	/**
+	 * Run the pipeline through a cursor: it is not limited by the size of one
+	 * document as the inline result, and the disk is used when the sort does
+	 * not fit in memory
+	 */
+	private Cursor aggregate(List<DBObject> pipe, Integer batchSize) {
+		AggregationOptions options = AggregationOptions.builder().allowDiskUse(true).outputMode(AggregationOptions.OutputMode.CURSOR).batchSize(batchSize).build();
+		return mongoOperations.getCollection(entityInformation.getCollectionName()).aggregate(pipe, options);
+	}
+
+	private DBObject getAggregateExplain(List<DBObject> pipe) {
+		return new BasicDBObject("aggregate", entityInformation.getCollectionName()).append("pipeline", pipe).append("explain", true);
+	}
+
+	/**
+	 * Time the query in the query monitor
+	 * 
+	 * @param operation
+	 *            the name of the operation
+	 * @param query
+	 *            the query or the pipeline, its values are removed
+	 * @param tenantScope
+	 *            the tenant logged with a slow query
+	 * @param explainCommand
+	 *            the command explaining a slow query
+	 * @param supplier
+	 *            the query
+	 */
+	private <R> R monitor(String operation, Object query, Supplier<String> tenantScope, Supplier<DBObject> explainCommand, Supplier<R> supplier) {
+		long start = System.currentTimeMillis();
+		R result = supplier.get();
+		record(operation, query, tenantScope, explainCommand, System.currentTimeMillis() - start);
+		return result;
+	}
+
+	private void record(String operation, Object query, Supplier<String> tenantScope, Supplier<DBObject> explainCommand, long timeInMillis) {
+		DBCollection coll = mongoOperations.getCollection(entityInformation.getCollectionName());
+		QueryMonitor.getInstance().record(coll.getDB(), coll.getName(), operation, query, tenantScope, timeInMillis, explainCommand);
+	}
+
+	private DBObject getFindExplain(Query query) {
+		MongoPersistentEntity<?> persistentEntity = getEntityMetadata().getPersistentEntity();
+		QueryMapper queryMapper = new QueryMapper(mongoOperations.getConverter());
+		DBObject find = new BasicDBObject("find", entityInformation.getCollectionName()).append("filter", queryMapper.getMappedObject(query.getQueryObject(), persistentEntity));
+		if (query.getSortObject() != null) {
+			find.put("sort", getMappedSort(query, queryMapper));
 		}
-		return fullEntityList;
+		find.put("skip", query.getSkip());
+		if (query.getLimit() > 0) {
+			find.put("limit", query.getLimit());
+		}
+		return getExplain(find);
 	}
 
-	public long count(Query query) {
-		return mongoOperations.getCollection(entityInformation.getCollectionName()).count(query.getQueryObject());
+	/**
+	 * Map the sort of the query: the fields sorted without case are sorted on
+	 * their lower cased copy, which is indexed
+	 */
+	private DBObject getMappedSort(Query query, QueryMapper queryMapper) {
+		EntityMetadata entityMetadata = getEntityMetadata();
+		DBObject mappedSort = queryMapper.getMappedObject(query.getSortObject(), entityMetadata.getPersistentEntity());
+		Map<String, String> sortKeyFieldMap = entityMetadata.getSortKeyFields();
+		if (sortKeyFieldMap.isEmpty()) {
+			return mappedSort;
+		}
+		DBObject sort = new BasicDBObject();
+		mappedSort.keySet().forEach(key -> sort.put(sortKeyFieldMap.getOrDefault(key, key), mappedSort.get(key)));
+		return sort;
 	}
 
-	protected static <T> List<T> convertIterableToList(Iterable<T> entities) {
-		if (entities instanceof List) {
-			return (List<T>) entities;
+	private static DBObject getExplain(DBObject command) {
+		return new BasicDBObject("explain", command).append("verbosity", "executionStats");
+	}
+
+	/**
+	 * Get the metadata of the entity, built once per entity class
+	 */
+	protected EntityMetadata getEntityMetadata() {
+		return EntityMetadata.of(mongoOperations.getConverter().getMappingContext(), entityInformation.getJavaType());
+	}
+
+	/**
+	 * Get the orders of the keyset pagination: the orders of the sort followed
+	 * by the id, so each entity has a unique position. The strings are sorted
+	 * without case as by the pages, so they need a lower cased copy.
+	 */
+	private List<Order> getKeysetOrderList(Sort sort) {
+		List<Order> orderList = new ArrayList<>();
+		if (sort != null) {
+			EntityMetadata entityMetadata = getEntityMetadata();
+			sort.forEach(order -> {
+				Assert.isTrue(order.getProperty().indexOf(".") == -1, "The pagination with cursor cannot sort on the field " + order.getProperty());
+				Assert.isTrue(!entityMetadata.getSortPath(order.getProperty()).needsAggregation(),
+						"The pagination with cursor cannot sort without case on the field " + order.getProperty() + ", it must be annotated with @SortIndexed");
+				orderList.add(order);
+			});
 		}
-		return StreamSupport.stream(entities.spliterator(), false).collect(Collectors.toList());
+		String idAttribute = entityInformation.getIdAttribute();
+		if (orderList.stream().noneMatch(order -> idAttribute.equals(order.getProperty()))) {
+			Direction direction = orderList.isEmpty() ? Direction.ASC : orderList.get(orderList.size() - 1).getDirection();
+			orderList.add(new Order(direction, idAttribute));
+		}
+		return orderList;
 	}
 
-	private boolean isTheFieldExistAndIsPrimitive(String fieldName) {
-		try {
-			Field orderField = entityInformation.getJavaType().getDeclaredField(fieldName);
-			return !ClassUtils.isPrimitiveOrWrapper(orderField.getType());
-		} catch (NoSuchFieldException | SecurityException e) {
-			// nothing to do
+	/**
+	 * Get the criteria of the entities after the cursor: for each order, the
+	 * previous orders are equal and this one is after the value of the cursor
+	 */
+	private Criteria getKeysetCriteria(List<Order> orderList, KeysetCursor keysetCursor) {
+		List<Object> values = keysetCursor.getValues();
+		Assert.isTrue(values.size() == orderList.size(), "The pagination cursor does not match the requested sort");
+		List<Criteria> branchList = new ArrayList<>();
+		for (int i = 0; i < orderList.size(); i++) {
+			List<Criteria> criteriaList = new ArrayList<>();
+			for (int j = 0; j < i; j++) {
+				criteriaList.add(Criteria.where(getKeysetField(orderList.get(j).getProperty())).is(values.get(j)));
+			}
+			String property = getKeysetField(orderList.get(i).getProperty());
+			Object value = values.get(i);
+			if (Direction.ASC.equals(orderList.get(i).getDirection())) {
+				// null values are first in ascending order
+				criteriaList.add(value == null ? Criteria.where(property).ne(null) : Criteria.where(property).gt(value));
+			} else if (value != null) {
+				// null values are last in descending order
+				criteriaList.add(new Criteria().orOperator(Criteria.where(property).lt(value), Criteria.where(property).is(null)));
+			} else {
+				continue;
+			}
+			branchList.add(new Criteria().andOperator(criteriaList.toArray(new Criteria[criteriaList.size()])));
 		}
-		return false;
+		return new Criteria().orOperator(branchList.toArray(new Criteria[branchList.size()]));
 	}
 
-	private boolean isTheFieldExistAndIsDBRef(String fieldName) {
-		try {
-			if (fieldName.indexOf(".") != -1) {
-				Field orderField = entityInformation.getJavaType().getDeclaredField(fieldName.substring(0, fieldName.indexOf(".")));
-				return orderField.getAnnotation(DBRef.class) != null;
+	/**
+	 * Get the cursor pointing after the given entity
+	 */
+	private KeysetCursor getKeysetCursor(List<Order> orderList, T entity) {
+		DBObject document = new BasicDBObject();
+		mongoOperations.getConverter().write(entity, document);
+		EntityMetadata entityMetadata = getEntityMetadata();
+		entityMetadata.writeSortKeys(document);
+		List<Object> values = new ArrayList<>();
+		orderList.forEach(order -> {
+			String fieldName = entityMetadata.getFieldName(order.getProperty());
+			values.add(document.get(entityMetadata.getSortKeyFields().getOrDefault(fieldName, fieldName)));
+		});
+		return new KeysetCursor(values);
+	}
+
+	/**
+	 * Get the field compared by the keyset criteria: the lower cased copy of a
+	 * field sorted without case, else the property
+	 */
+	private String getKeysetField(String property) {
+		EntityMetadata entityMetadata = getEntityMetadata();
+		return entityMetadata.getSortKeyFields().getOrDefault(entityMetadata.getFieldName(property), property);
+	}
+
+	public long count(Query query) {
+		return count(query, this::getTenantScope, 0);
+	}
+
+	/**
+	 * Count the entities of the query, stopped by the server after the max
+	 * time when it is positive
+	 */
+	private long count(Query query, Supplier<String> tenantScope, long maxTimeInMillis) {
+		DBObject mappedQuery = new QueryMapper(mongoOperations.getConverter()).getMappedObject(query.getQueryObject(), getEntityMetadata().getPersistentEntity());
+		DBCollection coll = mongoOperations.getCollection(entityInformation.getCollectionName());
+		DBObject countCommand = new BasicDBObject("count", coll.getName()).append("query", mappedQuery);
+		return monitor("count", query.getQueryObject(), tenantScope, () -> getExplain(countCommand), () -> {
+			if (maxTimeInMillis <= 0) {
+				return coll.count(mappedQuery);
+			}
+			CommandResult result = coll.getDB().command(new BasicDBObject(countCommand.toMap()).append("maxTimeMS", maxTimeInMillis), coll.getReadPreference());
+			if (!result.ok()) {
+				MongoException exception = result.getException();
+				if (exception.getCode() == EXCEEDED_TIME_LIMIT_CODE) {
+					throw new QueryTimeoutException("The count of " + coll.getName() + " took more than " + maxTimeInMillis + "ms", exception);
+				}
+				throw translateException(exception);
 			}
-		} catch (NoSuchFieldException | SecurityException e) {
-			// nothing to do
+			return ((Number) result.get("n")).longValue();
+		});
+	}
+
+	/**
+	 * Get the tenant of the current user, so two tenants never share a cached
+	 * count and the slow queries give their tenant
+	 * 
+	 * @return the tenant of the current user, empty without tenant
+	 */
+	protected String getTenantScope() {
+		return "";
+	}
+
+	/**
+	 * Set how long the count of a query is cached, 0 to disable the cache,
+	 * instead of the shared {@link CountSettings}
+	 * 
+	 * @param timeToLiveInMillis
+	 */
+	public void setCountCacheTimeToLiveInMillis(long timeToLiveInMillis) {
+		countCache.setTimeToLiveInMillis(timeToLiveInMillis);
+	}
+
+	/**
+	 * Set the maximum number of cached counts, instead of the shared
+	 * {@link CountSettings}
+	 * 
+	 * @param maxSize
+	 */
+	public void setCountCacheMaxSize(int maxSize) {
+		countCache.setMaxSize(maxSize);
+	}
+
+	/**
+	 * Set how the total of a page is counted, instead of the shared
+	 * {@link CountSettings}
+	 * 
+	 * @param countStrategy
+	 */
+	public void setCountStrategy(CountStrategy countStrategy) {
+		Assert.notNull(countStrategy);
+		this.countStrategy = countStrategy;
+	}
+
+	private CountStrategy getCountStrategy() {
+		return countStrategy != null ? countStrategy : CountSettings.getStrategy();
+	}
+
+	/**
+	 * Set the executor running the count queries of the pages
+	 * 
+	 * @param countExecutor
+	 */
+	public void setCountExecutor(ExecutorService countExecutor) {
+		Assert.notNull(countExecutor);
+		this.countExecutor = countExecutor;
+	}
+
+	/**
+	 * Set the maximum time to wait for the count of a page once the page is
+	 * read, instead of the shared {@link CountSettings}
+	 * 
+	 * @param countTimeoutInMillis
+	 */
+	public void setCountTimeoutInMillis(long countTimeoutInMillis) {
+		Assert.isTrue(countTimeoutInMillis > 0, "The count timeout must be positive");
+		this.countTimeoutInMillis = countTimeoutInMillis;
+	}
+
+	private long getCountTimeoutInMillis() {
+		return countTimeoutInMillis != null ? countTimeoutInMillis : CountSettings.getTimeoutInMillis();
+	}
+
+	/**
+	 * Set what to do when the count of a page is too long, instead of the
+	 * shared {@link CountSettings}
+	 * 
+	 * @param countFallback
+	 */
+	public void setCountFallback(CountFallback countFallback) {
+		Assert.notNull(countFallback);
+		this.countFallback = countFallback;
+	}
+
+	private CountFallback getCountFallback() {
+		return countFallback != null ? countFallback : CountSettings.getFallback();
+	}
+
+	/**
+	 * Set the search engines, the first one supporting the entity builds the
+	 * query of the search
+	 * 
+	 * @param searchEngineList
+	 */
+	public void setSearchEngines(List<AdamaSearchEngine> searchEngineList) {
+		Assert.notEmpty(searchEngineList);
+		this.searchEngineList = searchEngineList;
+	}
+
+	/**
+	 * Enable the unordered bulk writes of the saved lists, instead of the
+	 * shared {@link BulkSaveSettings}. They do not send the events of the
+	 * template.
+	 * 
+	 * @param bulkWriteEnabled
+	 */
+	public void setBulkWriteEnabled(boolean bulkWriteEnabled) {
+		this.bulkWriteEnabled = bulkWriteEnabled;
+	}
+
+	private boolean isBulkWriteEnabled() {
+		return bulkWriteEnabled != null ? bulkWriteEnabled : BulkSaveSettings.isBulkWriteEnabled();
+	}
+
+	/**
+	 * Set the number of entities written by each bulk write of a save
+	 * 
+	 * @param bulkChunkSize
+	 */
+	public void setBulkChunkSize(int bulkChunkSize) {
+		Assert.isTrue(bulkChunkSize > 0, "The bulk chunk size must be positive");
+		this.bulkChunkSize = bulkChunkSize;
+	}
+
+	/**
+	 * Set the number of documents read by each round trip of a stream
+	 * 
+	 * @param streamBatchSize
+	 */
+	public void setStreamBatchSize(int streamBatchSize) {
+		Assert.isTrue(streamBatchSize > 0, "The stream batch size must be positive");
+		this.streamBatchSize = streamBatchSize;
+	}
+
+	/**
+	 * Set the auditor of the entities written by bulk
+	 * 
+	 * @param auditorAware
+	 */
+	public void setAuditorAware(AuditorAware<String> auditorAware) {
+		Assert.notNull(auditorAware);
+		this.auditorAware = auditorAware;
+	}
+
+	protected static <T> List<T> convertIterableToList(Iterable<T> entities) {
+		if (entities instanceof List) {
+			return (List<T>) entities;
 		}
-		return false;
+		return StreamSupport.stream(entities.spliterator(), false).collect(Collectors.toList());
 	}
 
 	protected abstract Criteria getIdCriteria(Object id);
@@ -13,8 +13,10 @@ import org.springframework.util.Assert;
 
 import com.adama.api.domain.util.domain.abst.delete.DeleteEntityAbstract;
 import com.adama.api.domain.util.domain.abst.tenant.TenantEntityAbstract;
+import com.adama.api.repository.util.bulk.BulkSaveResult;
 import com.adama.api.repository.util.repository.AdamaMongoRepository;
 import com.adama.api.security.TenantChecker;
+import com.adama.api.security.TenantContextHolder;
 
 /**
  * Adama Repository base implementation for Mongo with multi tenancy
@@ -34,31 +36,31 @@ public abstract class AdamaMongoTenantRepositoryAbstract<D extends DeleteEntityA
 
 	@Override
 	public <S extends T> S save(S entity) {
-		if (tenantChecker.isTenantable(null)) {
-			entity.setTenant(getCurrentAuthTenant());
+		if (isTenantable()) {
+			entity.setTenant(getTenant());
 		}
 		return super.save(entity);
 	}
 
 	@Override
-	public <S extends T> List<S> save(Iterable<S> entities) {
-		return super.save(addClientToIterable(entities));
+	public <S extends T> BulkSaveResult<S> bulkSave(Iterable<S> entities) {
+		return super.bulkSave(addClientToIterable(entities));
 	}
 
 	@Override
 	public T findOne(ID id) {
 		Assert.notNull(id, "The given id must not be null!");
-		T entity = mongoOperations.findById(id, entityInformation.getJavaType(), entityInformation.getCollectionName());
-		if (tenantChecker.isTenantable(null)) {
-			Assert.isTrue(entity.getTenant().getId().equals(getCurrentAuthTenant().getId()), "You are not logged with a tenant that can access this resource");
+		T entity = findById(id);
+		if (isTenantable()) {
+			Assert.isTrue(entity.getTenant().getId().equals(getTenantId()), "You are not logged with a tenant that can access this resource");
 		}
 		return entity;
 	}
 
 	@Override
 	public <S extends T> S insert(S entity) {
-		if (tenantChecker.isTenantable(null)) {
-			entity.setTenant(getCurrentAuthTenant());
+		if (isTenantable()) {
+			entity.setTenant(getTenant());
 		}
 		return super.insert(entity);
 	}
@@ -71,25 +73,52 @@ public abstract class AdamaMongoTenantRepositoryAbstract<D extends DeleteEntityA
 	@Override
 	protected Criteria getIdCriteria(Object id) {
 		Criteria criteria = where(entityInformation.getIdAttribute()).is(id);
-		if (tenantChecker.isTenantable(null)) {
-			criteria = criteria.and(TenantEntityAbstract.TENANT_FIELD_NAME).is(getCurrentAuthTenant());
+		if (isTenantable()) {
+			criteria = criteria.and(TenantEntityAbstract.TENANT_FIELD_NAME).is(getTenant());
 		}
 		return criteria;
 	}
 
+	/**
+	 * The tenant is resolved once per request, the criteria are built on each
+	 * call as the callers can add to them
+	 */
 	@Override
 	protected Criteria getFilterCriteria() {
+		String tenantId = getTenantScope();
 		Criteria criteria = Criteria.where(DeleteEntityAbstract.ACTIVE_FIELD_NAME).is(true);
-		if (tenantChecker.isTenantable(null)) {
-			criteria = criteria.and(TenantEntityAbstract.TENANT_FIELD_NAME + "." + TenantEntityAbstract.ID_FIELD_NAME).is(getCurrentAuthTenant().getId());
+		if (!tenantId.isEmpty()) {
+			criteria = criteria.and(TenantEntityAbstract.TENANT_FIELD_NAME + "." + TenantEntityAbstract.ID_FIELD_NAME).is(tenantId);
 		}
 		return criteria;
 	}
 
+	@Override
+	protected String getTenantScope() {
+		if (isTenantable()) {
+			return getTenantId();
+		}
+		return "";
+	}
+
+	private boolean isTenantable() {
+		return TenantContextHolder.getContext().isTenantable(() -> tenantChecker.isTenantable(null));
+	}
+
+	private D getTenant() {
+		return TenantContextHolder.getContext().getTenant(this::getCurrentAuthTenant);
+	}
+
+	private String getTenantId() {
+		return TenantContextHolder.getContext().getTenantId(() -> getTenant().getId());
+	}
+
 	private <S extends T> List<S> addClientToIterable(Iterable<S> entities) {
 		List<S> result = convertIterableToList(entities);
-		D tenant = getCurrentAuthTenant();
-		result.parallelStream().peek(entity -> entity.setTenant(tenant));
+		if (isTenantable()) {
+			D tenant = getTenant();
+			result.forEach(entity -> entity.setTenant(tenant));
+		}
 		return result;
 	}
 }
@@ -33,7 +33,7 @@ public class AdamaMongoRepositoryImpl<T extends DeleteEntityAbstract, ID extends
 
 	public T findOne(ID id) {
 		Assert.notNull(id, "The given id must not be null!");
-		return mongoOperations.findById(id, entityInformation.getJavaType(), entityInformation.getCollectionName());
+		return findById(id);
 	}
 
 	protected Criteria getIdCriteria(Object id) {
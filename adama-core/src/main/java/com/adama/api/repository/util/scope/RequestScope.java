@@ -0,0 +1,50 @@
+package com.adama.api.repository.util.scope;
+
+import com.adama.api.repository.util.dbref.DbRefIdentityMap;
+import com.adama.api.repository.util.dirty.EntitySnapshots;
+
+/**
+ * The scope of a request or of an async task on the current thread. The
+ * entities read through a reference and the snapshots of the dirty tracked
+ * entities are only kept inside a scope, and cleared when it is closed.
+ * Outside a scope, as in the scheduled tasks, nothing is kept.
+ * 
+ * The scope is opened by the {@link com.adama.api.web.filter.RequestScopeFilter}
+ * for each request and by the async executor for each task.
+ */
+public final class RequestScope {
+	private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+	private RequestScope() {
+	}
+
+	/**
+	 * Open a scope on the current thread
+	 * 
+	 * @return false if a scope is already open, the caller must then not close
+	 *         it
+	 */
+	public static boolean open() {
+		if (isActive()) {
+			return false;
+		}
+		ACTIVE.set(Boolean.TRUE);
+		return true;
+	}
+
+	/**
+	 * @return true if a scope is open on the current thread
+	 */
+	public static boolean isActive() {
+		return ACTIVE.get() != null;
+	}
+
+	/**
+	 * Close the scope of the current thread and forget what was kept in it
+	 */
+	public static void close() {
+		ACTIVE.remove();
+		DbRefIdentityMap.clear();
+		EntitySnapshots.clear();
+	}
+}
@@ -0,0 +1,34 @@
+package com.adama.api.repository.util.search;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.adama.api.repository.util.metadata.EntityMetadata;
+
+/**
+ * Build the query of the search of the repositories
+ */
+public interface AdamaSearchEngine {
+	/**
+	 * Can the engine search in the entity
+	 * 
+	 * @param entityMetadata
+	 *            the metadata of the entity
+	 * @return true if the engine can search in the entity
+	 */
+	boolean supports(EntityMetadata entityMetadata);
+
+	/**
+	 * Create the query matching the key
+	 * 
+	 * @param entityMetadata
+	 *            the metadata of the entity
+	 * @param key
+	 *            the searched key
+	 * @param sort
+	 *            the requested sort, when null the engine may rank the
+	 *            entities by relevance
+	 * @return the query of the search
+	 */
+	Query createQuery(EntityMetadata entityMetadata, String key, Sort sort);
+}
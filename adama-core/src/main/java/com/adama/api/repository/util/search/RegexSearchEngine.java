@@ -0,0 +1,28 @@
+package com.adama.api.repository.util.search;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.adama.api.repository.util.metadata.EntityMetadata;
+
+/**
+ * Search with a case insensitive regex on each private non-primitive field of
+ * the entity. It cannot use an index, so it is the fallback of the entities
+ * without text index.
+ */
+public class RegexSearchEngine implements AdamaSearchEngine {
+	@Override
+	public boolean supports(EntityMetadata entityMetadata) {
+		return true;
+	}
+
+	@Override
+	public Query createQuery(EntityMetadata entityMetadata, String key, Sort sort) {
+		List<Criteria> criterias = entityMetadata.getSearchableFields().stream().map(field -> Criteria.where(field).regex(key, "i")).collect(Collectors.toList());
+		return new Query(new Criteria().orOperator(criterias.toArray(new Criteria[criterias.size()])));
+	}
+}
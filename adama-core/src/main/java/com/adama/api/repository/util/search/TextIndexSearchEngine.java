@@ -0,0 +1,30 @@
+package com.adama.api.repository.util.search;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.index.TextIndexed;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+
+import com.adama.api.repository.util.metadata.EntityMetadata;
+
+/**
+ * Search with the text index of the collection, declared with
+ * {@link TextIndexed} on the fields of the entity. Without sort the entities
+ * are ranked by relevance.
+ */
+public class TextIndexSearchEngine implements AdamaSearchEngine {
+	@Override
+	public boolean supports(EntityMetadata entityMetadata) {
+		return !entityMetadata.getTextIndexedFields().isEmpty();
+	}
+
+	@Override
+	public Query createQuery(EntityMetadata entityMetadata, String key, Sort sort) {
+		TextQuery query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(key));
+		if (sort == null) {
+			query.sortByScore();
+		}
+		return query;
+	}
+}
@@ -0,0 +1,26 @@
+package com.adama.api.repository.util.sort;
+
+import javax.inject.Inject;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.stereotype.Component;
+
+import com.adama.api.domain.util.domain.abst.delete.DeleteEntityAbstract;
+import com.adama.api.repository.util.metadata.EntityMetadata;
+import com.mongodb.DBObject;
+
+/**
+ * Write the lower cased copies of the fields sorted without case in the
+ * documents saved by the template
+ */
+@Component
+public class SortKeyMongoEventListener extends AbstractMongoEventListener<DeleteEntityAbstract> {
+	@Inject
+	private MongoOperations mongoOperations;
+
+	@Override
+	public void onBeforeSave(DeleteEntityAbstract source, DBObject dbo) {
+		EntityMetadata.of(mongoOperations.getConverter().getMappingContext(), source.getClass()).writeSortKeys(dbo);
+	}
+}
@@ -0,0 +1,162 @@
+package com.adama.api.repository.util.sort;
+
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+import com.adama.api.domain.util.domain.annotation.SortIndexed;
+
+/**
+ * A property of a sort resolved against the mapping of the entity: the field
+ * to sort on, the DBRef to join to read it, and if the sort ignores the case.
+ */
+public final class SortPath {
+	/**
+	 * The prefix of the lower cased copy of a field sorted without case
+	 */
+	public static final String SORT_KEY_PREFIX = "_sort_";
+	private final String property;
+	private final MongoPersistentProperty dbRefProperty;
+	private final String dbRefCollection;
+	private final String fieldName;
+	private final boolean caseInsensitive;
+	private final String sortKeyFieldName;
+
+	private SortPath(String property, MongoPersistentProperty dbRefProperty, String dbRefCollection, String fieldName, boolean caseInsensitive, String sortKeyFieldName) {
+		this.property = property;
+		this.dbRefProperty = dbRefProperty;
+		this.dbRefCollection = dbRefCollection;
+		this.fieldName = fieldName;
+		this.caseInsensitive = caseInsensitive;
+		this.sortKeyFieldName = sortKeyFieldName;
+	}
+
+	/**
+	 * Resolve a property of a sort, by property name or by field name. String
+	 * fields are sorted without case, on their lower cased copy when they have
+	 * one, fields of a DBRef are read in the referenced collection.
+	 * 
+	 * @param mappingContext
+	 * @param entity
+	 *            the entity sorted
+	 * @param property
+	 *            the property of the sort, as field or as dbRefField.field
+	 * @return the resolved sort path
+	 */
+	public static SortPath resolve(MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext, MongoPersistentEntity<?> entity, String property) {
+		int index = property.indexOf(".");
+		String head = index == -1 ? property : property.substring(0, index);
+		MongoPersistentProperty persistentProperty = findProperty(entity, head);
+		if (persistentProperty == null) {
+			return new SortPath(property, null, null, property, false, null);
+		}
+		if (index == -1) {
+			return new SortPath(property, null, null, persistentProperty.getFieldName(), String.class.equals(persistentProperty.getType()), getSortKeyFieldName(persistentProperty));
+		}
+		String tail = property.substring(index + 1);
+		if (persistentProperty.isDbReference()) {
+			MongoPersistentEntity<?> dbRefEntity = mappingContext.getPersistentEntity(persistentProperty.getActualType());
+			if (dbRefEntity != null) {
+				MongoPersistentProperty dbRefFieldProperty = tail.indexOf(".") == -1 ? findProperty(dbRefEntity, tail) : null;
+				String dbRefFieldName = dbRefFieldProperty == null ? tail : dbRefFieldProperty.getFieldName();
+				boolean dbRefCaseInsensitive = dbRefFieldProperty != null && String.class.equals(dbRefFieldProperty.getType());
+				String dbRefSortKeyFieldName = dbRefFieldProperty == null ? null : getSortKeyFieldName(dbRefFieldProperty);
+				return new SortPath(property, persistentProperty, dbRefEntity.getCollection(), dbRefFieldName, dbRefCaseInsensitive, dbRefSortKeyFieldName);
+			}
+		}
+		return new SortPath(property, null, null, persistentProperty.getFieldName() + "." + tail, false, null);
+	}
+
+	/**
+	 * Get the field of the lower cased copy of a property
+	 * 
+	 * @param persistentProperty
+	 * @return the field of the copy, null if the property has no copy
+	 */
+	public static String getSortKeyFieldName(MongoPersistentProperty persistentProperty) {
+		SortIndexed sortIndexed = persistentProperty.findAnnotation(SortIndexed.class);
+		if (sortIndexed == null || !sortIndexed.caseInsensitive() || !String.class.equals(persistentProperty.getType())) {
+			return null;
+		}
+		return SORT_KEY_PREFIX + persistentProperty.getFieldName();
+	}
+
+	private static MongoPersistentProperty findProperty(MongoPersistentEntity<?> entity, String name) {
+		MongoPersistentProperty persistentProperty = entity.getPersistentProperty(name);
+		if (persistentProperty != null) {
+			return persistentProperty;
+		}
+		MongoPersistentProperty[] found = new MongoPersistentProperty[1];
+		entity.doWithProperties((MongoPersistentProperty candidate) -> {
+			if (name.equals(candidate.getFieldName())) {
+				found[0] = candidate;
+			}
+		});
+		return found[0];
+	}
+
+	/**
+	 * The property as given in the sort
+	 */
+	public String getProperty() {
+		return property;
+	}
+
+	/**
+	 * The DBRef to join, null if the field is in the entity
+	 */
+	public MongoPersistentProperty getDbRefProperty() {
+		return dbRefProperty;
+	}
+
+	/**
+	 * The collection of the DBRef to join, null if the field is in the entity
+	 */
+	public String getDbRefCollection() {
+		return dbRefCollection;
+	}
+
+	/**
+	 * The name of the field in the document, or in the referenced document
+	 */
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	public boolean isDbRef() {
+		return dbRefProperty != null;
+	}
+
+	public boolean isCaseInsensitive() {
+		return caseInsensitive;
+	}
+
+	/**
+	 * The field of the lower cased copy, null if the field has no copy
+	 */
+	public String getSortKeyFieldName() {
+		return sortKeyFieldName;
+	}
+
+	/**
+	 * The field to sort on: the lower cased copy if there is one, else the
+	 * field
+	 */
+	public String getSortFieldName() {
+		return sortKeyFieldName != null ? sortKeyFieldName : fieldName;
+	}
+
+	/**
+	 * Does the sort need to lower the case of the field on the fly
+	 */
+	public boolean needsLowerCase() {
+		return caseInsensitive && sortKeyFieldName == null;
+	}
+
+	/**
+	 * Does the sort on this path need an aggregation
+	 */
+	public boolean needsAggregation() {
+		return isDbRef() || needsLowerCase();
+	}
+}
@@ -0,0 +1,74 @@
+package com.adama.api.security;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.springframework.security.core.Authentication;
+
+/**
+ * The tenant of the current request, resolved once from the authentication
+ * and reused by every repository call of the request.
+ * 
+ * The tenant entity and the tenantable flag are resolved the first time
+ * they are asked for. The tenant id is read from the tenant claim of the
+ * token, stored in the details of the authentication.
+ */
+public final class TenantContext {
+	private final Authentication authentication;
+	private volatile String tenantId;
+	private volatile Boolean tenantable;
+	private volatile Object tenant;
+
+	public TenantContext(Authentication authentication) {
+		this.authentication = authentication;
+		if (authentication != null && authentication.getDetails() instanceof String) {
+			this.tenantId = (String) authentication.getDetails();
+		}
+	}
+
+	/**
+	 * @return the authentication this context was resolved from
+	 */
+	public Authentication getAuthentication() {
+		return authentication;
+	}
+
+	/**
+	 * @param resolver
+	 *            checks if the current user is bound to a tenant, called
+	 *            once per request
+	 * @return true if the current user is bound to a tenant
+	 */
+	public boolean isTenantable(BooleanSupplier resolver) {
+		if (tenantable == null) {
+			tenantable = resolver.getAsBoolean();
+		}
+		return tenantable;
+	}
+
+	/**
+	 * @param resolver
+	 *            loads the tenant of the current user, called once per
+	 *            request
+	 * @return the tenant of the current user
+	 */
+	@SuppressWarnings("unchecked")
+	public <D> D getTenant(Supplier<D> resolver) {
+		if (tenant == null) {
+			tenant = resolver.get();
+		}
+		return (D) tenant;
+	}
+
+	/**
+	 * @param resolver
+	 *            gives the tenant id when the token has no tenant claim
+	 * @return the id of the tenant of the current user
+	 */
+	public String getTenantId(Supplier<String> resolver) {
+		if (tenantId == null) {
+			tenantId = resolver.get();
+		}
+		return tenantId;
+	}
+}
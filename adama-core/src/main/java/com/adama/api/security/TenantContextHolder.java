@@ -0,0 +1,58 @@
+package com.adama.api.security;
+
+import java.util.Optional;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Holds the {@link TenantContext} of the current thread.
+ * 
+ * The context is bound to the authentication it was resolved from: when the
+ * authentication of the thread changes, a new context is resolved. The
+ * context is cleared at the end of each request by the JWT filter and
+ * propagated to the async tasks by the async executor.
+ */
+public final class TenantContextHolder {
+	private static final ThreadLocal<TenantContext> CONTEXT = new ThreadLocal<>();
+
+	private TenantContextHolder() {
+	}
+
+	/**
+	 * @return the tenant context of the current authentication, created if
+	 *         needed
+	 */
+	public static TenantContext getContext() {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		TenantContext context = CONTEXT.get();
+		if (context == null || context.getAuthentication() != authentication) {
+			context = new TenantContext(authentication);
+			CONTEXT.set(context);
+		}
+		return context;
+	}
+
+	/**
+	 * @return the tenant context of the current thread if one was resolved
+	 */
+	public static Optional<TenantContext> getCurrentContext() {
+		return Optional.ofNullable(CONTEXT.get());
+	}
+
+	/**
+	 * @param context
+	 *            the tenant context of the current thread, null to clear it
+	 */
+	public static void setContext(TenantContext context) {
+		if (context == null) {
+			CONTEXT.remove();
+		} else {
+			CONTEXT.set(context);
+		}
+	}
+
+	public static void clearContext() {
+		CONTEXT.remove();
+	}
+}
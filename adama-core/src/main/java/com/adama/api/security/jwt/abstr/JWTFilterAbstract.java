@@ -14,6 +14,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.GenericFilterBean;
 
+import com.adama.api.security.TenantContextHolder;
 import com.adama.api.util.jwt.JWTUtils;
 
 import io.jsonwebtoken.JwtException;
@@ -47,6 +48,8 @@ public abstract class JWTFilterAbstract<T extends TokenProviderAbstract<?, ?>> e
 		} catch (JwtException cje) {
 			log.info("Security exception {}", cje.getMessage());
 			((HttpServletResponse) servletResponse).setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+		} finally {
+			TenantContextHolder.clearContext();
 		}
 	}
 }
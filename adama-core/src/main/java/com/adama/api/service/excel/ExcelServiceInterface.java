@@ -1,7 +1,11 @@
 package com.adama.api.service.excel;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import com.adama.api.service.excel.exception.ExcelException;
 import java.util.Comparator;
@@ -34,6 +38,44 @@ public interface ExcelServiceInterface {
 	 */
 	public <T> InputStream createExcelOrdered(List<T> objectList, String entityName, Comparator<? super String> comparator) throws ExcelException;
 
+	/**
+	 * Write Excel file from the objects straight to the output stream, only a
+	 * window of rows is kept in memory, the others are flushed to temporary
+	 * files
+	 * 
+	 * @param objectSupplier
+	 *            supply the objects, called twice: once to find the columns,
+	 *            once to write the rows. The streams are closed. Both streams
+	 *            should give the same objects: the fields only found by the
+	 *            second one are not written, they are logged.
+	 * @param name
+	 *            of entity
+	 * @param outputStream
+	 *            the stream of the file
+	 * @throws {@link ExcelException}:
+	 */
+	public <T> void writeExcel(Supplier<Stream<T>> objectSupplier, String entityName, OutputStream outputStream) throws ExcelException;
+
+	/**
+	 * Write Excel file from the objects straight to the output stream, only a
+	 * window of rows is kept in memory, the others are flushed to temporary
+	 * files
+	 * 
+	 * @param objectSupplier
+	 *            supply the objects, called twice: once to find the columns,
+	 *            once to write the rows. The streams are closed. Both streams
+	 *            should give the same objects: the fields only found by the
+	 *            second one are not written, they are logged.
+	 * @param name
+	 *            of entity
+	 * @param comparator
+	 *            sort the fields
+	 * @param outputStream
+	 *            the stream of the file
+	 * @throws {@link ExcelException}:
+	 */
+	public <T> void writeExcelOrdered(Supplier<Stream<T>> objectSupplier, String entityName, Comparator<? super String> comparator, OutputStream outputStream) throws ExcelException;
+
 	/**
 	 * Read Excel file and fill the object with it
 	 * 
@@ -43,4 +85,23 @@ public interface ExcelServiceInterface {
 	 * @throws {@link ExcelException}:
 	 */
 	public <T> List<T> readExcel(InputStream inputStream, Class<T> entityType, String entityName) throws ExcelException;
-}
\ No newline at end of file
+
+	/**
+	 * Read Excel file and give the objects to the consumer by batch, the xlsx
+	 * files are read one row at a time and only the current batch is kept in
+	 * memory. The file is read twice: all the rows are converted once before
+	 * the first batch is given, so a row that cannot be converted fails the
+	 * whole file.
+	 * 
+	 * @param inputStream
+	 * @param entityType
+	 * @param entityName
+	 *            the name of the sheet
+	 * @param batchSize
+	 *            the number of objects of each batch
+	 * @param batchConsumer
+	 *            receive the objects of each batch, in the order of the rows
+	 * @throws {@link ExcelException}:
+	 */
+	public <T> void readExcel(InputStream inputStream, Class<T> entityType, String entityName, int batchSize, Consumer<List<T>> batchConsumer) throws ExcelException;
+}
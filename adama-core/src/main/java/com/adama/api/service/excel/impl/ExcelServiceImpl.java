@@ -4,28 +4,46 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UncheckedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.math.BigDecimal;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.hssf.util.AreaReference;
 import org.apache.poi.hssf.util.CellReference;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.BuiltinFormats;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
@@ -35,11 +53,13 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFRichTextString;
-import org.apache.poi.xssf.usermodel.XSSFRow;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFTable;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.select.NodeTraversor;
@@ -51,16 +71,26 @@ import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTTableColumns;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTTableStyleInfo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
+import com.adama.api.config.AdamaProperties;
 import com.adama.api.domain.util.domain.abst.delete.DeleteEntityAbstract;
 import com.adama.api.service.excel.ExcelServiceInterface;
 import com.adama.api.service.excel.exception.ExcelException;
+import com.adama.api.service.excel.util.BeanFlattener;
+import com.adama.api.service.excel.util.ColumnWidthEstimator;
+import com.adama.api.service.excel.util.FlatPath;
 import com.adama.api.service.excel.util.FormattingHtml;
+import com.adama.api.service.excel.util.XlsxSheetHandler;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.github.wnameless.json.flattener.JsonFlattener;
-import com.github.wnameless.json.unflattener.JsonUnflattener;
+import com.fasterxml.jackson.databind.node.TextNode;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.VerticalAlignment;
@@ -68,10 +98,16 @@ import org.apache.poi.ss.usermodel.VerticalAlignment;
 @Slf4j
 @Service
 public class ExcelServiceImpl implements ExcelServiceInterface {
-	private CellStyle dateCellStyle;
-	private CellStyle cellStyle;
 	@Autowired
 	private ObjectMapper mapper;
+	@Autowired
+	private AdamaProperties adamaProperties;
+	private BeanFlattener beanFlattener;
+
+	@PostConstruct
+	public void init() {
+		beanFlattener = new BeanFlattener(mapper);
+	}
 
 	@Override
 	public <T> InputStream createExcel(List<T> objectList, String entityName) throws ExcelException {
@@ -80,46 +116,96 @@ public class ExcelServiceImpl implements ExcelServiceInterface {
 
 	@Override
 	public <T> InputStream createExcelOrdered(List<T> objectList, String entityName, Comparator<? super String> comparator) throws ExcelException {
-		XSSFWorkbook wb;
+		// the objects are flattened once, the maps are used for the columns
+		// and for the rows
+		List<Map<String, Object>> listMap;
 		try {
-			wb = getWorkWook(entityName);
-			XSSFSheet entitySheet = wb.getSheet(entityName);
-			if (objectList != null && objectList.size() != 0) {
+			listMap = objectList != null ? objectList.parallelStream().map(beanFlattener::flatten).collect(Collectors.toList()) : Collections.emptyList();
+		} catch (IllegalArgumentException e) {
+			log.error(e.getMessage(), e);
+			throw new ExcelException(e.getMessage(), e);
+		}
+		ByteArrayOutputStream arrayOutputStream = new ByteArrayOutputStream();
+		writeSheet(listMap::stream, entityName, comparator, arrayOutputStream);
+		return new ByteArrayInputStream(arrayOutputStream.toByteArray());
+	}
+
+	@Override
+	public <T> void writeExcel(Supplier<Stream<T>> objectSupplier, String entityName, OutputStream outputStream) throws ExcelException {
+		writeExcelOrdered(objectSupplier, entityName, new IdFirstComparator(), outputStream);
+	}
+
+	@Override
+	public <T> void writeExcelOrdered(Supplier<Stream<T>> objectSupplier, String entityName, Comparator<? super String> comparator, OutputStream outputStream) throws ExcelException {
+		// the maps are not kept between the two passes, the memory would not
+		// be bounded by the window anymore
+		writeSheet(() -> objectSupplier.get().map(beanFlattener::flatten), entityName, comparator, outputStream);
+	}
+
+	/**
+	 * Write the sheet of the flattened objects
+	 * 
+	 * @param rowSupplier
+	 *            supply the flattened objects, called twice: once to find the
+	 *            columns, once to write the rows. The fields only found by the
+	 *            second call, as the objects written in between, are dropped
+	 *            and logged.
+	 * @param entityName
+	 * @param comparator
+	 * @param outputStream
+	 * @throws ExcelException
+	 */
+	private void writeSheet(Supplier<Stream<Map<String, Object>>> rowSupplier, String entityName, Comparator<? super String> comparator, OutputStream outputStream) throws ExcelException {
+		SXSSFWorkbook wb = new SXSSFWorkbook(adamaProperties.getExcel().getRowAccessWindowSize());
+		try {
+			wb.setCompressTempFiles(adamaProperties.getExcel().isCompressTempFiles());
+			SXSSFSheet entitySheet = wb.createSheet(entityName);
+			Row firstRow = entitySheet.createRow(0);
+			// we get a KeySet with all the elements of each keySet, each
+			// object could have a size of fieldName different
+			List<String> headerList;
+			try (Stream<Map<String, Object>> rows = rowSupplier.get()) {
+				headerList = rows.flatMap(map -> map.keySet().stream()).filter(distinctByKey(String::toLowerCase)).sorted(comparator).collect(Collectors.toList());
+			}
+			if (!headerList.isEmpty()) {
 				// create the style
-				this.dateCellStyle = wb.createCellStyle();
-				this.dateCellStyle.setDataFormat((short) BuiltinFormats.getBuiltinFormat("d-mmm-yy"));
-				this.dateCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
-				this.cellStyle = wb.createCellStyle();
-				this.cellStyle.setWrapText(true);
-				this.cellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
-				// create a list of map for each object, each object could have
-				// a size of fieldName different
-				List<Map<String, Object>> listMap = objectList.parallelStream().map(object -> {
-					try {
-						return new JsonFlattener(mapper.writeValueAsString(object)).flattenAsMap();
-					} catch (JsonProcessingException e) {
-						log.error(e.getMessage(), e);
-						throw new UncheckedIOException(e.getMessage(), e);
-					}
-				}).collect(Collectors.toList());
-				// we get a KeySet with all the elements of each keySet
-				List<String> headerList = listMap.parallelStream().flatMap(map -> map.keySet().stream()).filter(distinctByKey(String::toLowerCase)).sorted(comparator).collect(Collectors.toList());
+				CellStyle dateCellStyle = wb.createCellStyle();
+				dateCellStyle.setDataFormat((short) BuiltinFormats.getBuiltinFormat("d-mmm-yy"));
+				dateCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
+				// the widths are estimated while the rows are written
+				ColumnWidthEstimator widthEstimator = new ColumnWidthEstimator(headerList.size(), adamaProperties.getExcel().getColumnWidthSampleRows(),
+						adamaProperties.getExcel().getMaxColumnWidth());
 				// we create the first Row with the keyName
-				Row firstRow = entitySheet.getRow(0);
 				IntStream.range(0, headerList.size()).forEach(i -> {
 					Cell cell = firstRow.createCell(i);
 					cell.setCellValue(headerList.get(i));
+					widthEstimator.measure(i, headerList.get(i));
 				});
 				// we write the value of each object to the correct column one
-				// by one
+				// by one, the rows out of the window are flushed to the
+				// temporary file
 				int currentRowIndex = 1;
-				for (T object : objectList) {
-					Row rowToAddEntity = entitySheet.createRow(currentRowIndex);
-					writeRow(object, headerList.size(), rowToAddEntity, entitySheet);
-					currentRowIndex++;
+				// the objects can change between the two passes, the fields
+				// without column are reported
+				Set<String> headerSet = headerList.stream().map(String::toLowerCase).collect(Collectors.toCollection(HashSet::new));
+				Set<String> droppedFieldSet = new TreeSet<>();
+				try (Stream<Map<String, Object>> rows = rowSupplier.get()) {
+					Iterator<Map<String, Object>> rowIterator = rows.iterator();
+					while (rowIterator.hasNext()) {
+						Map<String, Object> objectMap = rowIterator.next();
+						objectMap.keySet().stream().filter(key -> !headerSet.contains(key.toLowerCase())).forEach(droppedFieldSet::add);
+						Row rowToAddEntity = entitySheet.createRow(currentRowIndex);
+						writeRow(objectMap, headerList, rowToAddEntity, dateCellStyle, widthEstimator);
+						currentRowIndex++;
+					}
+				}
+				if (!droppedFieldSet.isEmpty()) {
+					log.warn("The fields {} of {} were not found by the first pass, they are not in the file", droppedFieldSet, entityName);
 				}
 				/* Create Table into Existing Sheet */
-				XSSFTable my_table = entitySheet.createTable();
+				// the table is only in the xml of the sheet, it is taken from
+				// the workbook behind the window
+				XSSFTable my_table = wb.getXSSFWorkbook().getSheet(entityName).createTable();
 				/* get CTTable object */
 				CTTable cttable = my_table.getCTTable();
 				/* Define Styles */
@@ -131,7 +217,7 @@ public class ExcelServiceImpl implements ExcelServiceInterface {
 				table_style.setShowRowStripes(true);
 				// showRowStripes=1
 				/* Define the data range including headers */
-				AreaReference my_data_range = new AreaReference(new CellReference(0, 0), new CellReference(objectList.size(), headerList.size() - 1));
+				AreaReference my_data_range = new AreaReference(new CellReference(0, 0), new CellReference(currentRowIndex - 1, headerList.size() - 1));
 				/* Set Range to the Table */
 				cttable.setRef(my_data_range.formatAsString());
 				cttable.setDisplayName(entityName);
@@ -150,135 +236,239 @@ public class ExcelServiceImpl implements ExcelServiceInterface {
 					filter.setShowButton(true);
 				}
 				for (int i = 0; i < headerList.size(); i++) {
-					entitySheet.autoSizeColumn(i);
 					// Include width of drop down button
-					if (entitySheet.getColumnWidth(i) < 60000) {
-						entitySheet.setColumnWidth(i, entitySheet.getColumnWidth(i) + 900);
-					}
+					entitySheet.setColumnWidth(i, widthEstimator.getWidth(i));
 				}
 			}
-			return commitChange(wb, entityName);
+			wb.write(outputStream);
 		} catch (IOException | IllegalArgumentException | IllegalAccessException | SecurityException e) {
 			log.error(e.getMessage(), e);
 			throw new ExcelException(e.getMessage(), e);
+		} finally {
+			// remove the temporary files of the flushed rows
+			wb.dispose();
 		}
 	}
 
 	@Override
 	public <T> List<T> readExcel(InputStream inputStream, Class<T> entityType, String entityName) throws ExcelException {
-		Workbook workbook;
 		List<T> entityList = new ArrayList<>();
+		// nothing is done with the rows before the whole file is read
+		readExcel(inputStream, entityType, entityName, Integer.MAX_VALUE, entityList::addAll, false);
+		return entityList;
+	}
+
+	@Override
+	public <T> void readExcel(InputStream inputStream, Class<T> entityType, String entityName, int batchSize, Consumer<List<T>> batchConsumer) throws ExcelException {
+		readExcel(inputStream, entityType, entityName, batchSize, batchConsumer, true);
+	}
+
+	private <T> void readExcel(InputStream inputStream, Class<T> entityType, String entityName, int batchSize, Consumer<List<T>> batchConsumer, boolean validateFirst)
+			throws ExcelException {
+		Path file = null;
 		try {
-			workbook = WorkbookFactory.create(inputStream);
-			Sheet entitySheet = workbook.getSheet(entityName);
-			if (entitySheet == null) {
-				throw new ExcelException("Cannot find sheet with name: " + entityName);
+			// the package is read from a file, from a stream it would be
+			// loaded in memory
+			file = Files.createTempFile("adama-excel-", ".tmp");
+			Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
+			FileMagic fileMagic;
+			try (InputStream fileStream = FileMagic.prepareToCheckMagic(Files.newInputStream(file))) {
+				fileMagic = FileMagic.valueOf(fileStream);
 			}
-			Row firstRow = entitySheet.getRow(0);
-			// find column Id
-			Integer columnIdIndex = null;
-			for (int cellIter = 0; cellIter <= firstRow.getLastCellNum(); cellIter++) {
-				if (firstRow.getCell(cellIter) != null && firstRow.getCell(cellIter).getCellType() == Cell.CELL_TYPE_STRING
-						&& firstRow.getCell(cellIter).getStringCellValue().equalsIgnoreCase(DeleteEntityAbstract.ID_FIELD_NAME)) {
-					columnIdIndex = cellIter;
-					break;
+			if (validateFirst) {
+				// all the rows are converted and dropped before the first batch
+				// is given, so a wrong row does not leave the previous batches
+				// saved
+				readRows(file, fileMagic, entityName, new RowBatcher<>(entityType, 1, batch -> {
+				}));
+			}
+			readRows(file, fileMagic, entityName, new RowBatcher<>(entityType, batchSize, batchConsumer));
+		} catch (IOException | EncryptedDocumentException | OpenXML4JException | SAXException | ParserConfigurationException e) {
+			log.error(e.getMessage(), e);
+			throw new ExcelException(e.getMessage(), e);
+		} finally {
+			if (file != null) {
+				try {
+					Files.deleteIfExists(file);
+				} catch (IOException e) {
+					log.warn("Cannot delete the temporary file {}", file, e);
 				}
 			}
-			if (columnIdIndex == null) {
-				throw new ExcelException("Cannot find column with name: " + DeleteEntityAbstract.ID_FIELD_NAME);
+		}
+	}
+
+	private <T> void readRows(Path file, FileMagic fileMagic, String entityName, RowBatcher<T> rowBatcher)
+			throws IOException, OpenXML4JException, SAXException, ParserConfigurationException, ExcelException {
+		if (fileMagic == FileMagic.OOXML) {
+			readSheetEvents(file, entityName, rowBatcher);
+		} else {
+			// the xls files have no event model on the sheets, they are read in
+			// a workbook
+			readSheet(file, entityName, rowBatcher);
+		}
+		rowBatcher.flush();
+	}
+
+	private <T> void readSheetEvents(Path file, String entityName, RowBatcher<T> rowBatcher) throws IOException, OpenXML4JException, SAXException, ParserConfigurationException, ExcelException {
+		OPCPackage opcPackage = OPCPackage.open(file.toFile(), PackageAccess.READ);
+		try {
+			XSSFReader reader = new XSSFReader(opcPackage);
+			XSSFReader.SheetIterator sheetIterator = (XSSFReader.SheetIterator) reader.getSheetsData();
+			while (sheetIterator.hasNext()) {
+				try (InputStream sheetStream = sheetIterator.next()) {
+					if (entityName.equalsIgnoreCase(sheetIterator.getSheetName())) {
+						XMLReader xmlReader = SAXHelper.newXMLReader();
+						xmlReader.setContentHandler(new XlsxSheetHandler(new ReadOnlySharedStringsTable(opcPackage), reader.getStylesTable(), (rowIndex, cells) -> {
+							try {
+								rowBatcher.read(cells);
+							} catch (ExcelException e) {
+								throw new SAXException(e);
+							}
+						}));
+						try {
+							xmlReader.parse(new InputSource(sheetStream));
+						} catch (SAXException e) {
+							if (e.getException() instanceof ExcelException) {
+								throw (ExcelException) e.getException();
+							}
+							throw e;
+						}
+						return;
+					}
+				}
 			}
-			for (int rowIndex = 1; rowIndex <= entitySheet.getLastRowNum(); rowIndex++) {
+			throw new ExcelException("Cannot find sheet with name: " + entityName);
+		} finally {
+			// the package is only read
+			opcPackage.revert();
+		}
+	}
+
+	private <T> void readSheet(Path file, String entityName, RowBatcher<T> rowBatcher) throws IOException, InvalidFormatException, ExcelException {
+		try (Workbook workbook = WorkbookFactory.create(file.toFile(), null, true)) {
+			Sheet entitySheet = workbook.getSheet(entityName);
+			if (entitySheet == null) {
+				throw new ExcelException("Cannot find sheet with name: " + entityName);
+			}
+			for (int rowIndex = 0; rowIndex <= entitySheet.getLastRowNum(); rowIndex++) {
 				Row row = entitySheet.getRow(rowIndex);
-				// we create a new flatjson from the excel
-				ObjectNode flatJson = mapper.createObjectNode();
-				// we fill the json object with value column by column
+				if (row == null) {
+					continue;
+				}
+				Map<Integer, JsonNode> cells = new HashMap<>();
+				// we read the value column by column
 				for (int cellIndex = 0; cellIndex < row.getLastCellNum(); cellIndex++) {
 					Cell cell = row.getCell(cellIndex);
-					// get the column name
-					String fieldName = firstRow.getCell(cellIndex).getStringCellValue();
-					if (fieldName == null) {
-						throw new ExcelException("Column " + cellIndex + " cannot be empty or not a string");
-					}
 					if (cell != null) {
 						if (cell.getCellType() == Cell.CELL_TYPE_BOOLEAN) {
-							flatJson.put(fieldName, cell.getBooleanCellValue());
+							cells.put(cellIndex, BooleanNode.valueOf(cell.getBooleanCellValue()));
 						}
 						if (cell.getCellType() == Cell.CELL_TYPE_NUMERIC) {
 							try {
 								if (DateUtil.isCellDateFormatted(cell)) {
 									// if it's a date
-									Date myDate = cell.getDateCellValue();
-									ZonedDateTime myZonedDateTime = ZonedDateTime.ofInstant(myDate.toInstant(), ZoneId.of("Z"));
-									flatJson.put(fieldName, myZonedDateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ")));
+									cells.put(cellIndex, TextNode.valueOf(XlsxSheetHandler.formatDate(cell.getDateCellValue())));
 								} else {
-									flatJson.put(fieldName, cell.getNumericCellValue());
+									cells.put(cellIndex, DoubleNode.valueOf(cell.getNumericCellValue()));
 								}
 							} catch (NumberFormatException nfe) {
 								// if not a date
-								flatJson.put(fieldName, cell.getNumericCellValue());
+								cells.put(cellIndex, DoubleNode.valueOf(cell.getNumericCellValue()));
 							}
 						}
 						if (cell.getCellType() == Cell.CELL_TYPE_STRING) {
-							flatJson.put(fieldName, cell.getStringCellValue());
+							cells.put(cellIndex, TextNode.valueOf(cell.getStringCellValue()));
 						}
 					}
 				}
-				String jsonUnflatten = JsonUnflattener.unflatten(flatJson.toString());
-				T object = mapper.readValue(jsonUnflatten, entityType);
-				entityList.add(object);
+				rowBatcher.read(cells);
 			}
-			return entityList;
-		} catch (IOException | EncryptedDocumentException | InvalidFormatException e) {
-			log.error(e.getMessage(), e);
-			throw new ExcelException(e.getMessage(), e);
 		}
 	}
 
-	private <T> XSSFWorkbook getWorkWook(String entityName) throws IOException {
-		ByteArrayOutputStream arrayOutputStream = new ByteArrayOutputStream();
-		try {
-			// we create the File
-			// we can also use template in resource path
-			XSSFWorkbook wb = new XSSFWorkbook();
-			this.checkWorkBookIntegrity(wb, entityName);
-			wb.write(arrayOutputStream);
-		} finally {
-			arrayOutputStream.close();
+	/**
+	 * Turn the rows in objects and give them by batch: the first row gives the
+	 * paths of the columns
+	 */
+	private class RowBatcher<T> {
+		private final Class<T> entityType;
+		private final int batchSize;
+		private final Consumer<List<T>> batchConsumer;
+		private List<FlatPath> pathList;
+		private List<T> batch = new ArrayList<>();
+
+		private RowBatcher(Class<T> entityType, int batchSize, Consumer<List<T>> batchConsumer) {
+			this.entityType = entityType;
+			this.batchSize = batchSize;
+			this.batchConsumer = batchConsumer;
 		}
-		InputStream inputStream = new ByteArrayInputStream(arrayOutputStream.toByteArray());
-		XSSFWorkbook wb = new XSSFWorkbook(inputStream);
-		checkWorkBookIntegrity(wb, entityName);
-		return wb;
-	}
 
-	private <T> void checkWorkBookIntegrity(XSSFWorkbook wb, String entityName) {
-		// we check if sheets for this model exist, if not we create it
-		if (wb.getSheetIndex(entityName) == -1) {
-			wb.createSheet(entityName);
+		private void read(Map<Integer, JsonNode> cells) throws ExcelException {
+			if (pathList == null) {
+				readHeader(cells);
+				return;
+			}
+			if (cells.isEmpty()) {
+				return;
+			}
+			// we create the json of the object from the excel
+			ObjectNode json = mapper.createObjectNode();
+			for (Map.Entry<Integer, JsonNode> cell : cells.entrySet()) {
+				FlatPath path = cell.getKey() < pathList.size() ? pathList.get(cell.getKey()) : null;
+				if (path == null) {
+					throw new ExcelException("Column " + cell.getKey() + " cannot be empty or not a string");
+				}
+				path.set(json, cell.getValue());
+			}
+			try {
+				batch.add(mapper.treeToValue(json, entityType));
+			} catch (JsonProcessingException e) {
+				throw new ExcelException(e.getMessage(), e);
+			}
+			if (batch.size() >= batchSize) {
+				flush();
+			}
+		}
+
+		private void readHeader(Map<Integer, JsonNode> cells) throws ExcelException {
+			// find column Id
+			if (cells.values().stream().noneMatch(cell -> cell.isTextual() && cell.textValue().equalsIgnoreCase(DeleteEntityAbstract.ID_FIELD_NAME))) {
+				throw new ExcelException("Cannot find column with name: " + DeleteEntityAbstract.ID_FIELD_NAME);
+			}
+			// the paths of the columns are parsed once for all the rows
+			int columnCount = cells.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+			pathList = new ArrayList<>(columnCount);
+			for (int cellIndex = 0; cellIndex < columnCount; cellIndex++) {
+				JsonNode cell = cells.get(cellIndex);
+				pathList.add(cell != null && cell.isTextual() ? FlatPath.parse(cell.textValue()) : null);
+			}
 		}
-		// we check if each column is correct according to the class parameter
-		XSSFSheet entitySheet = wb.getSheet(entityName);
-		XSSFRow firstRow = entitySheet.getRow(0);
-		// if row doesn't exist we create it
-		if (firstRow == null) {
-			firstRow = entitySheet.createRow(0);
+
+		private void flush() {
+			if (!batch.isEmpty()) {
+				batchConsumer.accept(batch);
+				batch = new ArrayList<>();
+			}
 		}
 	}
 
-	private <T> void writeRow(T object, int numberOfColumn, Row rowToAddEntity, XSSFSheet entitySheet) throws IllegalArgumentException, IllegalAccessException, JsonProcessingException {
-		Map<String, Object> objectMap = new JsonFlattener(mapper.writeValueAsString(object)).flattenAsMap();
-		for (int i = 0; i < numberOfColumn; i++) {
+	private void writeRow(Map<String, Object> objectMap, List<String> headerList, Row rowToAddEntity, CellStyle dateCellStyle, ColumnWidthEstimator widthEstimator)
+			throws IllegalArgumentException, IllegalAccessException {
+		boolean sampling = widthEstimator.isSampling();
+		for (int i = 0; i < headerList.size(); i++) {
 			Cell cell = rowToAddEntity.createCell(i);
-			Row firstRow = entitySheet.getRow(0);
-			Cell cellTop = firstRow.getCell(i);
-			Object value = objectMap.get(cellTop.getStringCellValue());
+			Object value = objectMap.get(headerList.get(i));
 			if (value != null) {
-				fillFieldWithObject(value, cell);
+				fillFieldWithObject(value, cell, dateCellStyle);
+				if (sampling) {
+					widthEstimator.measure(i, cell);
+				}
 			}
 		}
+		widthEstimator.nextRow();
 	}
 
-	private void fillFieldWithObject(Object value, Cell cell) throws IllegalArgumentException, IllegalAccessException {
+	private void fillFieldWithObject(Object value, Cell cell, CellStyle dateCellStyle) throws IllegalArgumentException, IllegalAccessException {
 		// log.info("Object " + value.getClass() + " -> " + value);
 		cell.setCellValue("BUG DURING EXTRACT");
 		if (value instanceof Boolean) {
@@ -286,11 +476,11 @@ public class ExcelServiceImpl implements ExcelServiceInterface {
 		}
 		if (value instanceof Date) {
 			cell.setCellValue((Date) value);
-			cell.setCellStyle(this.dateCellStyle);
+			cell.setCellStyle(dateCellStyle);
 		}
 		if (value instanceof ZonedDateTime) {
 			cell.setCellValue(((ZonedDateTime) value).toString());
-			cell.setCellStyle(this.dateCellStyle);
+			cell.setCellStyle(dateCellStyle);
 		}
 		if (value instanceof Double) {
 			cell.setCellValue((Double) value);
@@ -308,7 +498,7 @@ public class ExcelServiceImpl implements ExcelServiceInterface {
 			try {
 				ZonedDateTime myDate = ZonedDateTime.parse((String) value, DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ"));
 				cell.setCellValue(Date.from(myDate.toInstant()));
-				cell.setCellStyle(this.dateCellStyle);
+				cell.setCellStyle(dateCellStyle);
 			} catch (DateTimeParseException dtpe) {
 				String stringValue = (String) value;
 				Document doc = Jsoup.parse(stringValue);
@@ -321,17 +511,6 @@ public class ExcelServiceImpl implements ExcelServiceInterface {
 		}
 	}
 
-	private <T> InputStream commitChange(XSSFWorkbook wb, String entityName) throws IOException {
-		ByteArrayOutputStream arrayOutputStream = new ByteArrayOutputStream();
-		try {
-			checkWorkBookIntegrity(wb, entityName);
-			wb.write(arrayOutputStream);
-		} finally {
-			arrayOutputStream.close();
-		}
-		return new ByteArrayInputStream(arrayOutputStream.toByteArray());
-	}
-
 	public static <T> Predicate<T> distinctByKey(Function<? super T, Object> keyExtractor) {
 		Map<Object, String> seen = new ConcurrentHashMap<>();
 		return t -> seen.put(keyExtractor.apply(t), "") == null;
@@ -0,0 +1,240 @@
+package com.adama.api.service.excel.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Flatten the objects to maps of dotted paths, with the same keys and values
+ * as JsonFlattener on their json, without writing the json.
+ *
+ * The properties of each class are taken once from the bean serializer of
+ * jackson and read directly from the object. The classes that jackson does not
+ * write as a plain bean (custom serializer, type info, any getter, formatted
+ * property...), the dates, the enums and the collections are flattened from
+ * their json tree.
+ */
+public class BeanFlattener {
+	private static final Set<Class<?>> SCALAR_TYPES = new HashSet<>(Arrays.asList(String.class, Character.class, Boolean.class, Integer.class, Long.class, Short.class, Byte.class,
+			Double.class, Float.class, BigDecimal.class, BigInteger.class));
+	private final ObjectMapper mapper;
+	private final Map<Class<?>, Optional<List<BeanPropertyWriter>>> planMap = new ConcurrentHashMap<>();
+	private final Map<Class<?>, Boolean> scalarMap = new ConcurrentHashMap<>();
+
+	public BeanFlattener(ObjectMapper mapper) {
+		this.mapper = mapper;
+	}
+
+	/**
+	 * Flatten the object
+	 *
+	 * @param object
+	 * @return the values by dotted path, in the order of the json
+	 */
+	public Map<String, Object> flatten(Object object) {
+		Map<String, Object> flatMap = new LinkedHashMap<>();
+		if (object != null) {
+			flattenValue("", object, flatMap);
+		}
+		return flatMap;
+	}
+
+	private void flattenValue(String key, Object value, Map<String, Object> flatMap) {
+		if (value == null) {
+			flatMap.put(key, null);
+		} else if (isScalar(value.getClass())) {
+			flatMap.put(key, getScalarValue(value));
+		} else {
+			Optional<List<BeanPropertyWriter>> plan = planMap.computeIfAbsent(value.getClass(), this::compile);
+			if (plan.isPresent()) {
+				flattenBean(key, value, plan.get(), flatMap);
+			} else {
+				flattenNode(key, mapper.valueToTree(value), flatMap);
+			}
+		}
+	}
+
+	private void flattenBean(String key, Object bean, List<BeanPropertyWriter> writers, Map<String, Object> flatMap) {
+		for (BeanPropertyWriter writer : writers) {
+			Object value;
+			try {
+				value = writer.get(bean);
+			} catch (Exception e) {
+				throw new IllegalArgumentException("Cannot read the property " + writer.getName() + " of " + bean.getClass().getName(), e);
+			}
+			if (value != null || !writer.willSuppressNulls()) {
+				flattenValue(appendName(key, writer.getName()), value, flatMap);
+			}
+		}
+	}
+
+	private void flattenNode(String key, JsonNode node, Map<String, Object> flatMap) {
+		if (node.isObject() && node.size() != 0) {
+			Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+			while (fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				flattenNode(appendName(key, field.getKey()), field.getValue(), flatMap);
+			}
+		} else if (node.isArray() && node.size() != 0) {
+			for (int i = 0; i < node.size(); i++) {
+				flattenNode(key + "[" + i + "]", node.get(i), flatMap);
+			}
+		} else {
+			flatMap.put(key, getNodeValue(node));
+		}
+	}
+
+	private Object getNodeValue(JsonNode node) {
+		if (node.isTextual()) {
+			return node.textValue();
+		}
+		if (node.isNumber()) {
+			// NaN and Infinity are written as strings
+			return node.isFloatingPointNumber() && !Double.isFinite(node.doubleValue()) ? node.asText() : node.decimalValue();
+		}
+		if (node.isBoolean()) {
+			return node.booleanValue();
+		}
+		if (node.isArray()) {
+			return new ArrayList<>();
+		}
+		if (node.isObject()) {
+			return new LinkedHashMap<>();
+		}
+		if (node.isNull() || node.isMissingNode()) {
+			return null;
+		}
+		return node.asText();
+	}
+
+	private Object getScalarValue(Object value) {
+		if (value instanceof Number) {
+			if ((value instanceof Double || value instanceof Float) && !Double.isFinite(((Number) value).doubleValue())) {
+				return value.toString();
+			}
+			return value instanceof BigDecimal ? value : new BigDecimal(value.toString());
+		}
+		if (value instanceof Character) {
+			return value.toString();
+		}
+		return value;
+	}
+
+	/**
+	 * Are the values of the type written by jackson as a plain string, number
+	 * or boolean
+	 */
+	private boolean isScalar(Class<?> type) {
+		return scalarMap.computeIfAbsent(type, key -> {
+			if (!SCALAR_TYPES.contains(key)) {
+				return false;
+			}
+			if (Number.class.isAssignableFrom(key) && mapper.getFactory().isEnabled(JsonGenerator.Feature.WRITE_NUMBERS_AS_STRINGS)) {
+				return false;
+			}
+			try {
+				// a module can replace the standard serializers
+				return StdSerializer.class.getPackage().equals(createProvider().findValueSerializer(key, null).getClass().getPackage());
+			} catch (JsonMappingException e) {
+				return false;
+			}
+		});
+	}
+
+	/**
+	 * Get the properties of the class written by jackson, empty if the class is
+	 * not written as a plain bean
+	 */
+	private Optional<List<BeanPropertyWriter>> compile(Class<?> type) {
+		SerializationConfig config = mapper.getSerializationConfig();
+		JavaType javaType = config.constructType(type);
+		try {
+			if (!isIncluded(config.getSerializationInclusion()) || mapper.getSerializerFactory().createTypeSerializer(config, javaType) != null) {
+				return Optional.empty();
+			}
+			BeanDescription description = config.introspect(javaType);
+			AnnotationIntrospector introspector = config.getAnnotationIntrospector();
+			JsonInclude classInclude = description.getClassAnnotations().get(JsonInclude.class);
+			if (description.findAnyGetter() != null || introspector.findFilterId(description.getClassInfo()) != null || introspector.findObjectIdInfo(description.getClassInfo()) != null
+					|| (classInclude != null && !isIncluded(classInclude.value()))) {
+				return Optional.empty();
+			}
+			JsonSerializer<Object> serializer = createProvider().findValueSerializer(type, null);
+			if (serializer.getClass() != BeanSerializer.class) {
+				return Optional.empty();
+			}
+			List<BeanPropertyWriter> writers = new ArrayList<>();
+			Iterator<PropertyWriter> properties = serializer.properties();
+			while (properties.hasNext()) {
+				PropertyWriter property = properties.next();
+				if (property.getClass() != BeanPropertyWriter.class) {
+					return Optional.empty();
+				}
+				BeanPropertyWriter writer = (BeanPropertyWriter) property;
+				JsonInclude include = writer.getAnnotation(JsonInclude.class);
+				// the annotations of the property change how its value is
+				// written
+				if (writer.getTypeSerializer() != null || writer.getAnnotation(JsonSerialize.class) != null || writer.getAnnotation(JsonFormat.class) != null
+						|| writer.getAnnotation(JsonRawValue.class) != null || (include != null && !isIncluded(include.value()))) {
+					return Optional.empty();
+				}
+				writers.add(writer);
+			}
+			return writers.isEmpty() ? Optional.empty() : Optional.of(Collections.unmodifiableList(writers));
+		} catch (JsonMappingException e) {
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Only the null values can be left out, the others inclusions need the
+	 * serializer
+	 */
+	private boolean isIncluded(JsonInclude.Include include) {
+		return include == null || include == JsonInclude.Include.ALWAYS || include == JsonInclude.Include.NON_NULL;
+	}
+
+	private DefaultSerializerProvider createProvider() {
+		return ((DefaultSerializerProvider) mapper.getSerializerProvider()).createInstance(mapper.getSerializationConfig(), mapper.getSerializerFactory());
+	}
+
+	/**
+	 * Append the name to the dotted path, the names with a dot are written as
+	 * ["name"]
+	 */
+	private static String appendName(String key, String name) {
+		if (name.indexOf('.') != -1) {
+			return key + "[\"" + name + "\"]";
+		}
+		return key.isEmpty() ? name : key + "." + name;
+	}
+}
@@ -0,0 +1,107 @@
+package com.adama.api.service.excel.util;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.NumberToTextConverter;
+
+/**
+ * Estimate the width of the columns from the number of characters of their
+ * cells, measured while the rows are written instead of rendering the text
+ * with the fonts like autoSizeColumn
+ */
+public class ColumnWidthEstimator {
+	// the excel limit, in characters
+	public static final int MAX_CHARACTERS = 255;
+	// the width of the drop down button of the filter, in 1/256th of a
+	// character
+	private static final int FILTER_BUTTON_WIDTH = 900;
+	private static final int DATE_CHARACTERS = 9;
+	private static final int BOOLEAN_CHARACTERS = 5;
+	// the general format writes at most 11 characters for a number
+	private static final int NUMBER_CHARACTERS = 11;
+	private final int[] maxCharacters;
+	private final int sampleRows;
+	private final int maxColumnCharacters;
+	private int measuredRows;
+
+	/**
+	 * @param columnCount
+	 * @param sampleRows
+	 *            the number of rows measured, all of them when 0
+	 * @param maxColumnCharacters
+	 *            the maximum width of a column, in characters
+	 */
+	public ColumnWidthEstimator(int columnCount, int sampleRows, int maxColumnCharacters) {
+		this.maxCharacters = new int[columnCount];
+		this.sampleRows = sampleRows;
+		this.maxColumnCharacters = Math.max(1, Math.min(maxColumnCharacters, MAX_CHARACTERS));
+	}
+
+	/**
+	 * Is the next row measured
+	 */
+	public boolean isSampling() {
+		return sampleRows <= 0 || measuredRows < sampleRows;
+	}
+
+	/**
+	 * End the measure of a row
+	 */
+	public void nextRow() {
+		measuredRows++;
+	}
+
+	/**
+	 * Measure the text of the header
+	 *
+	 * @param column
+	 * @param header
+	 */
+	public void measure(int column, String header) {
+		maxCharacters[column] = Math.max(maxCharacters[column], getLongestLine(header));
+	}
+
+	/**
+	 * Measure the value of the cell
+	 *
+	 * @param column
+	 * @param cell
+	 */
+	public void measure(int column, Cell cell) {
+		int characters = 0;
+		if (cell.getCellType() == Cell.CELL_TYPE_STRING) {
+			characters = getLongestLine(cell.getStringCellValue());
+		} else if (cell.getCellType() == Cell.CELL_TYPE_NUMERIC) {
+			characters = DateUtil.isCellDateFormatted(cell) ? DATE_CHARACTERS : Math.min(NUMBER_CHARACTERS, NumberToTextConverter.toText(cell.getNumericCellValue()).length());
+		} else if (cell.getCellType() == Cell.CELL_TYPE_BOOLEAN) {
+			characters = BOOLEAN_CHARACTERS;
+		}
+		maxCharacters[column] = Math.max(maxCharacters[column], characters);
+	}
+
+	/**
+	 * Get the width of the column with the drop down button of the filter
+	 *
+	 * @param column
+	 * @return the width in 1/256th of a character
+	 */
+	public int getWidth(int column) {
+		// one more character for the margins of the cell
+		int width = (Math.min(maxCharacters[column], maxColumnCharacters) + 1) * 256;
+		if (width < 60000) {
+			width += FILTER_BUTTON_WIDTH;
+		}
+		return Math.min(width, MAX_CHARACTERS * 256);
+	}
+
+	private static int getLongestLine(String text) {
+		int longest = 0;
+		int start = 0;
+		int end;
+		while ((end = text.indexOf('\n', start)) != -1) {
+			longest = Math.max(longest, end - start);
+			start = end + 1;
+		}
+		return Math.max(longest, text.length() - start);
+	}
+}
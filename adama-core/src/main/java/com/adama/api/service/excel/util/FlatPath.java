@@ -0,0 +1,130 @@
+package com.adama.api.service.excel.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A dotted path written by the {@link BeanFlattener}, parsed once and used to
+ * set the values in a json tree: name.other[0]["name.with.dot"]
+ */
+public final class FlatPath {
+	private final String key;
+	// a String for a field, an Integer for an index of an array
+	private final Object[] segments;
+
+	private FlatPath(String key, Object[] segments) {
+		this.key = key;
+		this.segments = segments;
+	}
+
+	/**
+	 * Parse the dotted path
+	 *
+	 * @param key
+	 * @return the path
+	 */
+	public static FlatPath parse(String key) {
+		List<Object> segmentList = new ArrayList<>();
+		StringBuilder name = new StringBuilder();
+		int i = 0;
+		while (i < key.length()) {
+			char c = key.charAt(i);
+			if (c == '.') {
+				addName(segmentList, name);
+				i++;
+			} else if (c == '[' && key.startsWith("[\"", i) && key.indexOf("\"]", i + 2) != -1) {
+				addName(segmentList, name);
+				int end = key.indexOf("\"]", i + 2);
+				segmentList.add(key.substring(i + 2, end));
+				i = end + 2;
+			} else if (c == '[' && key.indexOf(']', i) != -1 && isIndex(key.substring(i + 1, key.indexOf(']', i)))) {
+				addName(segmentList, name);
+				int end = key.indexOf(']', i);
+				segmentList.add(Integer.valueOf(key.substring(i + 1, end)));
+				i = end + 1;
+			} else {
+				name.append(c);
+				i++;
+			}
+		}
+		addName(segmentList, name);
+		return new FlatPath(key, segmentList.toArray());
+	}
+
+	private static void addName(List<Object> segmentList, StringBuilder name) {
+		if (name.length() != 0) {
+			segmentList.add(name.toString());
+			name.setLength(0);
+		}
+	}
+
+	private static boolean isIndex(String value) {
+		return !value.isEmpty() && value.length() < 10 && value.chars().allMatch(Character::isDigit);
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Set the value at the path, the missing objects and arrays are created
+	 *
+	 * @param root
+	 *            the json tree
+	 * @param value
+	 */
+	public void set(ObjectNode root, JsonNode value) {
+		JsonNode node = root;
+		for (int i = 0; i < segments.length; i++) {
+			Object segment = segments[i];
+			boolean last = i == segments.length - 1;
+			Object next = last ? null : segments[i + 1];
+			if (node.isObject()) {
+				ObjectNode objectNode = (ObjectNode) node;
+				String name = segment.toString();
+				if (last) {
+					objectNode.set(name, value);
+				} else {
+					JsonNode child = objectNode.get(name);
+					if (!isContainerOf(child, next)) {
+						child = next instanceof Integer ? objectNode.putArray(name) : objectNode.putObject(name);
+					}
+					node = child;
+				}
+			} else {
+				ArrayNode arrayNode = (ArrayNode) node;
+				if (!(segment instanceof Integer)) {
+					// a field of an array, the value has no place
+					return;
+				}
+				int index = (Integer) segment;
+				while (arrayNode.size() <= index) {
+					arrayNode.addNull();
+				}
+				if (last) {
+					arrayNode.set(index, value);
+				} else {
+					JsonNode child = arrayNode.get(index);
+					if (!isContainerOf(child, next)) {
+						child = next instanceof Integer ? arrayNode.arrayNode() : arrayNode.objectNode();
+						arrayNode.set(index, child);
+					}
+					node = child;
+				}
+			}
+		}
+	}
+
+	private static boolean isContainerOf(JsonNode node, Object segment) {
+		return node != null && (segment instanceof Integer ? node.isArray() : node.isObject());
+	}
+
+	@Override
+	public String toString() {
+		return key;
+	}
+}
@@ -0,0 +1,162 @@
+package com.adama.api.service.excel.util;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+/**
+ * Read the xml of a xlsx sheet with SAX and give the values of each row, only
+ * the current row is kept in memory. The values are read as by the workbook:
+ * the booleans, the numbers, the dates as strings and the strings. The
+ * formulas and the errors are skipped.
+ */
+public class XlsxSheetHandler extends DefaultHandler {
+	private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+	private final ReadOnlySharedStringsTable sharedStrings;
+	private final StylesTable styles;
+	private final RowConsumer rowConsumer;
+	private final Map<Integer, Boolean> dateStyleMap = new HashMap<>();
+	private final StringBuilder value = new StringBuilder();
+	private Map<Integer, JsonNode> cells;
+	private int rowIndex = -1;
+	private int columnIndex;
+	private String cellType;
+	private String cellStyle;
+	private boolean formula;
+	private boolean valueRead;
+	private boolean inValue;
+
+	/**
+	 * Receive the values of a row
+	 */
+	@FunctionalInterface
+	public interface RowConsumer {
+		/**
+		 * @param rowIndex
+		 *            the index of the row, from 0
+		 * @param cells
+		 *            the values by index of column, without the empty cells
+		 * @throws SAXException
+		 *             to stop the reading
+		 */
+		void accept(int rowIndex, Map<Integer, JsonNode> cells) throws SAXException;
+	}
+
+	public XlsxSheetHandler(ReadOnlySharedStringsTable sharedStrings, StylesTable styles, RowConsumer rowConsumer) {
+		this.sharedStrings = sharedStrings;
+		this.styles = styles;
+		this.rowConsumer = rowConsumer;
+	}
+
+	/**
+	 * Format the date of a cell as the json of the dates
+	 *
+	 * @param date
+	 * @return the date in UTC
+	 */
+	public static String formatDate(Date date) {
+		return ZonedDateTime.ofInstant(date.toInstant(), ZoneId.of("Z")).format(DATE_FORMATTER);
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+		String name = localName.isEmpty() ? qName : localName;
+		if ("row".equals(name)) {
+			String reference = attributes.getValue("r");
+			rowIndex = reference != null ? Integer.parseInt(reference) - 1 : rowIndex + 1;
+			columnIndex = -1;
+			cells = new HashMap<>();
+		} else if ("c".equals(name)) {
+			String reference = attributes.getValue("r");
+			columnIndex = reference != null ? new CellReference(reference).getCol() : columnIndex + 1;
+			cellType = attributes.getValue("t");
+			cellStyle = attributes.getValue("s");
+			formula = false;
+			valueRead = false;
+			value.setLength(0);
+		} else if ("f".equals(name)) {
+			formula = true;
+		} else if ("v".equals(name) || ("t".equals(name) && "inlineStr".equals(cellType))) {
+			// the text of an inline string can be split in several runs
+			inValue = true;
+		}
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) throws SAXException {
+		if (inValue) {
+			value.append(ch, start, length);
+		}
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException {
+		String name = localName.isEmpty() ? qName : localName;
+		if ("v".equals(name) || "t".equals(name)) {
+			if (inValue) {
+				valueRead = true;
+			}
+			inValue = false;
+		} else if ("c".equals(name)) {
+			JsonNode node = valueRead && !formula ? getValue() : null;
+			if (node != null) {
+				cells.put(columnIndex, node);
+			}
+		} else if ("row".equals(name)) {
+			rowConsumer.accept(rowIndex, cells);
+		}
+	}
+
+	private JsonNode getValue() {
+		String text = value.toString();
+		if ("b".equals(cellType)) {
+			return BooleanNode.valueOf("1".equals(text));
+		}
+		if ("s".equals(cellType)) {
+			return TextNode.valueOf(sharedStrings.getEntryAt(Integer.parseInt(text)));
+		}
+		if ("inlineStr".equals(cellType) || "str".equals(cellType)) {
+			return TextNode.valueOf(text);
+		}
+		if ("e".equals(cellType) || text.isEmpty()) {
+			return null;
+		}
+		double number = Double.parseDouble(text);
+		if (cellStyle != null && isDateStyle(Integer.parseInt(cellStyle)) && DateUtil.isValidExcelDate(number)) {
+			return TextNode.valueOf(formatDate(DateUtil.getJavaDate(number)));
+		}
+		return DoubleNode.valueOf(number);
+	}
+
+	private boolean isDateStyle(int styleIndex) {
+		return dateStyleMap.computeIfAbsent(styleIndex, index -> {
+			XSSFCellStyle style = styles.getStyleAt(index);
+			if (style == null) {
+				return false;
+			}
+			String format = style.getDataFormatString();
+			if (format == null) {
+				format = BuiltinFormats.getBuiltinFormat(style.getDataFormat());
+			}
+			return DateUtil.isADateFormat(style.getDataFormat(), format);
+		});
+	}
+}
@@ -1,11 +1,17 @@
 package com.adama.api.service.util.service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import com.adama.api.domain.util.domain.abst.delete.DeleteEntityAbstract;
+import com.adama.api.repository.util.bulk.BulkSaveResult;
+import com.adama.api.repository.util.page.KeysetPage;
 import org.springframework.data.domain.Sort;
 
 /**
@@ -21,6 +27,27 @@ public interface AdamaServiceInterface<D extends DeleteEntityAbstract> {
 	 */
 	D save(D adamaEntity);
 
+	/**
+	 * Save the adamaEntitys with the bulk save of the repository, without
+	 * {@link #save(DeleteEntityAbstract)}. The first error is thrown once all
+	 * the entities are written.
+	 * 
+	 * @param adamaEntities
+	 *            the entities to save
+	 * @return the persisted entities
+	 */
+	List<D> save(List<D> adamaEntities);
+
+	/**
+	 * Save the adamaEntitys with the bulk save of the repository, as
+	 * {@link #save(List)}, without throwing the errors
+	 * 
+	 * @param adamaEntities
+	 *            the entities to save
+	 * @return the outcome of each entity, in their order
+	 */
+	BulkSaveResult<D> bulkSave(List<D> adamaEntities);
+
 	/**
 	 * Get all the adamaEntitys.
 	 * 
@@ -37,6 +64,49 @@ public interface AdamaServiceInterface<D extends DeleteEntityAbstract> {
 	 */
 	Page<D> findAll(Pageable pageable);
 
+	/**
+	 * Get all the adamaEntitys, reading only the given fields.
+	 * 
+	 * @param pageable
+	 *            the pagination information
+	 * @param fields
+	 *            the fields to read, all of them when empty
+	 * @return the list of entities
+	 */
+	Page<D> findAll(Pageable pageable, Set<String> fields);
+
+	/**
+	 * Get a slice of the adamaEntitys, without counting them.
+	 * 
+	 * @param pageable
+	 *            the pagination information
+	 * @return the slice of entities
+	 */
+	Slice<D> findAllSlice(Pageable pageable);
+
+	/**
+	 * Get a slice of the adamaEntitys, without counting them, reading only the
+	 * given fields.
+	 * 
+	 * @param pageable
+	 *            the pagination information
+	 * @param fields
+	 *            the fields to read, all of them when empty
+	 * @return the slice of entities
+	 */
+	Slice<D> findAllSlice(Pageable pageable, Set<String> fields);
+
+	/**
+	 * Get the adamaEntitys after the cursor.
+	 * 
+	 * @param pageable
+	 *            the size and the sort of the slice
+	 * @param cursor
+	 *            the cursor of the previous slice, empty for the first one
+	 * @return the slice of entities with the cursor of the next one
+	 */
+	KeysetPage<D> findAllByCursor(Pageable pageable, String cursor);
+
 	/**
 	 * Get the "id" adamaEntity.
 	 * 
@@ -66,6 +136,29 @@ public interface AdamaServiceInterface<D extends DeleteEntityAbstract> {
 	 */
 	Iterable<D> findAll(List<String> idList, Sort sort);
 
+	/**
+	 * Stream all the adamaEntities, read by batch from the database. The
+	 * stream must be closed.
+	 * 
+	 * @param sort
+	 *            the sort, can be null
+	 * @return the stream of the entities
+	 */
+	Stream<D> streamAll(Sort sort);
+
+	/**
+	 * Update only the given properties of the "id" adamaEntity. The entity is
+	 * updated in the database without {@link #save(DeleteEntityAbstract)}, a
+	 * service adding rules to the save must add them here too.
+	 * 
+	 * @param id
+	 *            the id of the entity
+	 * @param changes
+	 *            the new values by property name, null to remove a value
+	 * @return the updated entity, null if not found
+	 */
+	D update(String id, Map<String, Object> changes);
+
 	/**
 	 * Delete the "id" adamaEntity.
 	 * 
@@ -85,6 +178,44 @@ public interface AdamaServiceInterface<D extends DeleteEntityAbstract> {
 	 */
 	Page<D> searchAll(String key, Pageable pageable);
 
+	/**
+	 * Search all the adamaEntitys, reading only the given fields
+	 * 
+	 * @param key
+	 *            the requested key for the search
+	 * @param pageable
+	 *            the pagination information
+	 * @param fields
+	 *            the fields to read, all of them when empty
+	 * @return the list of entities
+	 */
+	Page<D> searchAll(String key, Pageable pageable, Set<String> fields);
+
+	/**
+	 * Search a slice of the adamaEntitys, without counting them
+	 * 
+	 * @param key
+	 *            the requested key for the search
+	 * @param pageable
+	 *            the pagination information
+	 * @return the slice of entities
+	 */
+	Slice<D> searchAllSlice(String key, Pageable pageable);
+
+	/**
+	 * Search a slice of the adamaEntitys, without counting them, reading only
+	 * the given fields
+	 * 
+	 * @param key
+	 *            the requested key for the search
+	 * @param pageable
+	 *            the pagination information
+	 * @param fields
+	 *            the fields to read, all of them when empty
+	 * @return the slice of entities
+	 */
+	Slice<D> searchAllSlice(String key, Pageable pageable, Set<String> fields);
+
 	/**
 	 * Get the count for this entity
 	 * 
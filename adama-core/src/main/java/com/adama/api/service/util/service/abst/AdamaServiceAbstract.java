@@ -1,19 +1,27 @@
 package com.adama.api.service.util.service.abst;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.annotation.PostConstruct;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import com.adama.api.domain.util.domain.abst.delete.DeleteEntityAbstract;
+import com.adama.api.repository.util.bulk.BulkSaveOutcome;
+import com.adama.api.repository.util.bulk.BulkSaveResult;
+import com.adama.api.repository.util.page.KeysetPage;
 import com.adama.api.repository.util.repository.AdamaMongoRepository;
 import com.adama.api.service.util.service.AdamaServiceInterface;
 import java.util.Optional;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
 
 @Slf4j
 public abstract class AdamaServiceAbstract<D extends DeleteEntityAbstract, R extends AdamaMongoRepository<D, String>> implements AdamaServiceInterface<D> {
@@ -28,6 +36,22 @@ public abstract class AdamaServiceAbstract<D extends DeleteEntityAbstract, R ext
 		return repo.save(adamaEntity);
 	}
 
+	@Override
+	public List<D> save(List<D> adamaEntities) {
+		BulkSaveResult<D> result = bulkSave(adamaEntities);
+		if (result.hasFailures()) {
+			log.debug("{} of the {} adamaEntitys cannot be saved", result.getCount(BulkSaveOutcome.FAILED), adamaEntities.size());
+			throw result.getItems().stream().filter(item -> BulkSaveOutcome.FAILED.equals(item.getOutcome())).findFirst().get().getError();
+		}
+		return result.getEntities();
+	}
+
+	@Override
+	public BulkSaveResult<D> bulkSave(List<D> adamaEntities) {
+		log.debug("Request to save {} adamaEntitys", adamaEntities.size());
+		return repo.bulkSave(adamaEntities);
+	}
+
 	@Override
 	public List<D> findAll() {
 		log.debug("Request to get all Entities");
@@ -42,6 +66,36 @@ public abstract class AdamaServiceAbstract<D extends DeleteEntityAbstract, R ext
 		return result;
 	}
 
+	@Override
+	public Page<D> findAll(Pageable pageable, Set<String> fields) {
+		log.debug("Request to get all Entities with the fields : {}", fields);
+		Page<D> result = repo.findAllQueryPageable(Optional.empty(), Optional.ofNullable(pageable.getSort()), Optional.of(pageable), fields);
+		return result;
+	}
+
+	@Override
+	public Slice<D> findAllSlice(Pageable pageable) {
+		log.debug("Request to get a slice of Entities");
+		Optional<Query> queryOptional = Optional.empty();
+		Slice<D> result = repo.findAllQuerySlice(queryOptional, Optional.ofNullable(pageable.getSort()), pageable);
+		return result;
+	}
+
+	@Override
+	public Slice<D> findAllSlice(Pageable pageable, Set<String> fields) {
+		log.debug("Request to get a slice of Entities with the fields : {}", fields);
+		Optional<Query> queryOptional = Optional.empty();
+		Slice<D> result = repo.findAllQuerySlice(queryOptional, Optional.ofNullable(pageable.getSort()), pageable, fields);
+		return result;
+	}
+
+	@Override
+	public KeysetPage<D> findAllByCursor(Pageable pageable, String cursor) {
+		log.debug("Request to get all Entities after cursor : {}", cursor);
+		KeysetPage<D> result = repo.findAllByCursor(Optional.empty(), pageable, Optional.ofNullable(cursor));
+		return result;
+	}
+
 	@Override
 	public D findOne(String id) {
 		log.debug("Request to get Entity : {}", id);
@@ -59,6 +113,18 @@ public abstract class AdamaServiceAbstract<D extends DeleteEntityAbstract, R ext
 		return repo.findAll(idList, Optional.of(sort));
 	}
 
+	@Override
+	public Stream<D> streamAll(Sort sort) {
+		log.debug("Request to stream all Entities");
+		return repo.stream(Optional.empty(), Optional.ofNullable(sort));
+	}
+
+	@Override
+	public D update(String id, Map<String, Object> changes) {
+		log.debug("Request to update the fields {} of adamaEntity : {}", changes.keySet(), id);
+		return repo.update(id, changes);
+	}
+
 	@Override
 	public void delete(String id) {
 		log.debug("Request to delete Client : {}", id);
@@ -72,6 +138,27 @@ public abstract class AdamaServiceAbstract<D extends DeleteEntityAbstract, R ext
 		return result;
 	}
 
+	@Override
+	public Page<D> searchAll(String key, Pageable pageable, Set<String> fields) {
+		log.debug("Request to search Entity with key : {} and the fields : {}", key, fields);
+		Page<D> result = repo.search(key, pageable, fields);
+		return result;
+	}
+
+	@Override
+	public Slice<D> searchAllSlice(String key, Pageable pageable) {
+		log.debug("Request to search a slice of Entity with key : {}", key);
+		Slice<D> result = repo.searchSlice(key, pageable);
+		return result;
+	}
+
+	@Override
+	public Slice<D> searchAllSlice(String key, Pageable pageable, Set<String> fields) {
+		log.debug("Request to search a slice of Entity with key : {} and the fields : {}", key, fields);
+		Slice<D> result = repo.searchSlice(key, pageable, fields);
+		return result;
+	}
+
 	@Override
 	public Long count() {
 		log.debug("Request to count all");
@@ -0,0 +1,36 @@
+package com.adama.api.web.filter;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.adama.api.repository.util.scope.RequestScope;
+
+/**
+ * Open the {@link RequestScope} around each request, it is always closed at
+ * the end of the request. The async dispatches are filtered too, as they run
+ * on another thread.
+ */
+public class RequestScopeFilter extends OncePerRequestFilter {
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+		boolean opened = RequestScope.open();
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			if (opened) {
+				RequestScope.close();
+			}
+		}
+	}
+
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
+}
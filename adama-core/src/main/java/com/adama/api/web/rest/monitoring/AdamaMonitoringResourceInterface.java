@@ -0,0 +1,55 @@
+package com.adama.api.web.rest.monitoring;
+
+import java.util.List;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import com.adama.api.repository.util.cache.EntityCacheStatistic;
+import com.adama.api.repository.util.monitoring.QueryStatistic;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+/**
+ * Rest resource for the monitoring of the database
+ */
+public interface AdamaMonitoringResourceInterface {
+	/**
+	 * GET /queries : get the statistics of the queries of the repositories,
+	 * the longest first
+	 * 
+	 * @return the statistics of each shape of query
+	 */
+	@ApiOperation(value = "Get the statistics of the queries", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "The statistics of the queries") })
+	ResponseEntity<List<QueryStatistic>> getQueryStatistics();
+
+	/**
+	 * DELETE /queries : reset the statistics of the queries
+	 * 
+	 * @return the ResponseEntity with status 200 (OK)
+	 */
+	@ApiOperation(value = "Reset the statistics of the queries")
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "The statistics are reset") })
+	ResponseEntity<Void> resetQueryStatistics();
+
+	/**
+	 * GET /indexes/missing : get the indexes missing at startup
+	 * 
+	 * @return the missing indexes
+	 */
+	@ApiOperation(value = "Get the indexes missing at startup", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "The missing indexes") })
+	ResponseEntity<List<String>> getMissingIndexes();
+
+	/**
+	 * GET /caches : get the hits and misses of the caches of the entities
+	 * 
+	 * @return the statistics of each cached entity class
+	 */
+	@ApiOperation(value = "Get the statistics of the caches of the entities", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "The statistics of the caches") })
+	ResponseEntity<List<EntityCacheStatistic>> getCacheStatistics();
+}
@@ -0,0 +1,54 @@
+package com.adama.api.web.rest.monitoring.abst;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import com.adama.api.repository.util.cache.EntityCache;
+import com.adama.api.repository.util.cache.EntityCacheStatistic;
+import com.adama.api.repository.util.index.AdamaIndexRegistry;
+import com.adama.api.repository.util.monitoring.QueryMonitor;
+import com.adama.api.repository.util.monitoring.QueryStatistic;
+import com.adama.api.web.rest.monitoring.AdamaMonitoringResourceInterface;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public abstract class AdamaMonitoringResourceAbstract implements AdamaMonitoringResourceInterface {
+	@Inject
+	private AdamaIndexRegistry indexRegistry;
+
+	@Override
+	@RequestMapping(value = "/queries", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<QueryStatistic>> getQueryStatistics() {
+		log.debug("REST request to get the statistics of the queries");
+		return ResponseEntity.ok(QueryMonitor.getInstance().getStatistics());
+	}
+
+	@Override
+	@RequestMapping(value = "/queries", method = RequestMethod.DELETE)
+	public ResponseEntity<Void> resetQueryStatistics() {
+		log.debug("REST request to reset the statistics of the queries");
+		QueryMonitor.getInstance().reset();
+		return ResponseEntity.ok().build();
+	}
+
+	@Override
+	@RequestMapping(value = "/indexes/missing", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<String>> getMissingIndexes() {
+		log.debug("REST request to get the missing indexes");
+		return ResponseEntity.ok(indexRegistry.getMissingIndexes());
+	}
+
+	@Override
+	@RequestMapping(value = "/caches", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<EntityCacheStatistic>> getCacheStatistics() {
+		log.debug("REST request to get the statistics of the caches");
+		return ResponseEntity.ok(EntityCache.getStatistics());
+	}
+}
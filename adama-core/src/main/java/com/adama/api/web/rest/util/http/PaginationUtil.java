@@ -1,12 +1,23 @@
 package com.adama.api.web.rest.util.http;
 
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Order;
 import org.springframework.http.HttpHeaders;
 
+import com.adama.api.repository.util.page.CountedPage;
+import com.adama.api.repository.util.page.KeysetPage;
+
 /**
  * Utility class for handling pagination.
  *
@@ -16,9 +27,15 @@ import org.springframework.http.HttpHeaders;
  * <a href="http://tools.ietf.org/html/rfc5988">RFC 5988 (Link header)</a>.
  */
 public class PaginationUtil {
+	public static final String CURSOR_PARAMETER = "cursor";
+	public static final String COUNT_PARAMETER = "count";
+	public static final String COUNT_HEADER = "X-Adama-Count";
+	public static final String FIELDS_PARAMETER = "fields";
+
 	public static HttpHeaders generatePaginationHttpHeaders(Page<?> page, String baseUrl, Optional<String> action) throws URISyntaxException {
 		HttpHeaders headers = new HttpHeaders();
 		headers.add("X-Total-Count", "" + page.getTotalElements());
+		headers.add("X-Total-Count-Exact", "" + (!(page instanceof CountedPage) || ((CountedPage<?>) page).isTotalExact()));
 		String link = "";
 		if ((page.getNumber() + 1) < page.getTotalPages()) {
 			if (action.isPresent()) {
@@ -50,4 +67,55 @@ public class PaginationUtil {
 		headers.add(HttpHeaders.LINK, link);
 		return headers;
 	}
+
+	/**
+	 * Generate the next and prev links of a slice, without total count nor last
+	 * link
+	 */
+	public static HttpHeaders generateSliceHttpHeaders(Slice<?> slice, String baseUrl, Optional<String> action) throws URISyntaxException {
+		HttpHeaders headers = new HttpHeaders();
+		String search = action.map(value -> "search=" + encode(value) + "&").orElse("");
+		String parameters = "&size=" + slice.getSize() + "&" + COUNT_PARAMETER + "=false" + generateSortParameters(slice.getSort());
+		List<String> linkList = new ArrayList<>();
+		if (slice.hasNext()) {
+			linkList.add("<" + (new URI(baseUrl + "?" + search + "page=" + (slice.getNumber() + 1) + parameters)).toString() + ">; rel=\"next\"");
+		}
+		if (slice.hasPrevious()) {
+			linkList.add("<" + (new URI(baseUrl + "?" + search + "page=" + (slice.getNumber() - 1) + parameters)).toString() + ">; rel=\"prev\"");
+		}
+		if (!linkList.isEmpty()) {
+			headers.add(HttpHeaders.LINK, String.join(",", linkList));
+		}
+		return headers;
+	}
+
+	public static HttpHeaders generateKeysetHttpHeaders(KeysetPage<?> page, String baseUrl) throws URISyntaxException {
+		HttpHeaders headers = new HttpHeaders();
+		String sort = generateSortParameters(page.getSort());
+		String link = "";
+		if (page.hasNext()) {
+			link = "<" + (new URI(baseUrl + "?" + CURSOR_PARAMETER + "=" + page.getNextCursor() + "&size=" + page.getSize() + sort)).toString() + ">; rel=\"next\",";
+		}
+		link += "<" + (new URI(baseUrl + "?" + CURSOR_PARAMETER + "=&size=" + page.getSize() + sort)).toString() + ">; rel=\"first\"";
+		headers.add(HttpHeaders.LINK, link);
+		return headers;
+	}
+
+	private static String encode(String value) {
+		try {
+			return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String generateSortParameters(Sort sort) {
+		StringBuilder parameters = new StringBuilder();
+		if (sort != null) {
+			for (Order order : sort) {
+				parameters.append("&sort=").append(order.getProperty()).append(",").append(order.getDirection().name().toLowerCase());
+			}
+		}
+		return parameters.toString();
+	}
 }
@@ -1,6 +1,7 @@
 package com.adama.api.web.rest.util.resource;
 
 import java.net.URISyntaxException;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -51,10 +52,32 @@ public interface AdamaResourceInterface<T extends DeleteEntityAbstract, D extend
 			@ApiResponse(code = 500, message = " The Entity couldnt be updated") })
 	ResponseEntity<D> updateEntity(D dto, HttpServletRequest request) throws URISyntaxException;
 
+	/**
+	 * PATCH /entities/:id : Updates only the given fields of an existing
+	 * Entity.
+	 *
+	 * @param id
+	 *            the id of the Entity to update
+	 * @param changes
+	 *            the new values by field, null to remove a value
+	 * @return the ResponseEntity with status 200 (OK) and with body the updated
+	 *         entityDTO, with status 400 (Bad Request) if a field cannot be
+	 *         updated or its value is not valid, or with status 404 (Not
+	 *         Found)
+	 */
+	@ApiOperation(value = "Updates only the given fields of an existing Entity.")
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "Entity updated return in body"), @ApiResponse(code = 400, message = "A field cannot be updated or is not valid"),
+			@ApiResponse(code = 404, message = "Entity not found") })
+	ResponseEntity<D> patchEntity(String id, Map<String, Object> changes);
+
 	/**
 	 * GET /entities : get all the Entities. Can paginate with page=1&size=20.
 	 * Sorting with sort='field'.ASC. Get Excel by Header Accept as
-	 * 'application/vnd.ms-excel'
+	 * 'application/vnd.ms-excel'. Can paginate with a cursor instead of the
+	 * page with cursor=&size=20, the next cursor is given in the Link header.
+	 * The total count is skipped with count=false or the header
+	 * 'X-Adama-Count: false', only the next and prev links are given.
+	 * Only some fields are read with fields=name,code, the others are null.
 	 * 
 	 * @param pageable
 	 *            the pagination information
@@ -103,15 +126,21 @@ public interface AdamaResourceInterface<T extends DeleteEntityAbstract, D extend
 	 * If the entity exist it's updated, if not it's created. Entity exists if
 	 * id exists.
 	 *
+	 * All the rows are converted before any of them is saved, then they are
+	 * saved by batch: when a batch cannot be saved, the previous batches stay
+	 * saved and their number of rows is given in the X-Adama-Saved-Rows
+	 * header.
+	 *
 	 * @param file
 	 *            the excel file with entity to upload
 	 * @return the ResponseEntity with status 200 (OK), with status 500
-	 *         (Internal Server Error)
+	 *         (Internal Server Error) and the number of saved rows when a
+	 *         batch cannot be saved
 	 * @throws URISyntaxException
 	 *             if the Location URI syntax is incorrect
 	 * @throws Exception
 	 */
 	@ApiOperation(value = "Updates a list of Entities with excel file.")
-	@ApiResponses(value = { @ApiResponse(code = 200, message = "the entities have been updated or created"), @ApiResponse(code = 500, message = " The Entity couldnt be updated") })
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "the entities have been updated or created"), @ApiResponse(code = 500, message = " The Entity couldnt be updated, the rows saved before are given in X-Adama-Saved-Rows") })
 	ResponseEntity<?> updateEntityExcel(MultipartFile file) throws URISyntaxException, Exception;
 }
\ No newline at end of file
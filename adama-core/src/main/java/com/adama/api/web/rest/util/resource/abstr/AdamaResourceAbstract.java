@@ -2,21 +2,37 @@ package com.adama.api.web.rest.util.resource.abstr;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
 
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -24,8 +40,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.adama.api.config.AdamaProperties;
 import com.adama.api.domain.util.domain.abst.delete.DeleteEntityAbstract;
+import com.adama.api.repository.util.bulk.BulkSaveOutcome;
+import com.adama.api.repository.util.bulk.BulkSaveResult;
+import com.adama.api.repository.util.page.KeysetPage;
 import com.adama.api.service.excel.ExcelServiceInterface;
 import com.adama.api.service.excel.exception.ExcelException;
 import com.adama.api.service.util.service.AdamaServiceInterface;
@@ -34,6 +55,7 @@ import com.adama.api.web.rest.util.http.HeaderUtil;
 import com.adama.api.web.rest.util.http.PaginationUtil;
 import com.adama.api.web.rest.util.mapper.DTOMapperInterface;
 import com.adama.api.web.rest.util.resource.AdamaResourceInterface;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -43,6 +65,9 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public abstract class AdamaResourceAbstract<D extends DeleteEntityAbstract, T extends AdamaDtoAbstract, S extends AdamaServiceInterface<D>, M extends DTOMapperInterface<D, T>> implements
 		AdamaResourceInterface<D, T> {
+	// the number of rows saved by an excel import that failed
+	public static final String SAVED_ROWS_HEADER = "X-Adama-Saved-Rows";
+	private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
 	private final Class<D> persistentClass;
 	private final Class<T> dtoClass;
 	private S service;
@@ -50,6 +75,10 @@ public abstract class AdamaResourceAbstract<D extends DeleteEntityAbstract, T ex
 	protected String entityName;
 	@Inject
 	private ExcelServiceInterface excelService;
+	@Inject
+	private ObjectMapper objectMapper;
+	@Inject
+	private AdamaProperties adamaProperties;
 
 	@PostConstruct
 	public abstract void init();
@@ -86,15 +115,51 @@ public abstract class AdamaResourceAbstract<D extends DeleteEntityAbstract, T ex
 		return ResponseEntity.ok().headers(HeaderUtil.createEntityUpdateAlert(entityName, entity.getId().toString())).body(result);
 	}
 
+	@Override
+	public ResponseEntity<T> patchEntity(String id, Map<String, Object> changes) {
+		log.debug("REST request to patch {} : {}, {}", entityName, id, changes);
+		if (changes == null || changes.isEmpty()) {
+			return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(entityName, "A patch of " + entityName + " must have fields")).body(null);
+		}
+		// the values are read as in an update, then taken from the mapped
+		// entity
+		T dto = objectMapper.convertValue(changes, dtoClass);
+		BeanWrapper entity = new BeanWrapperImpl(mapper.dtoToEntity(dto));
+		Map<String, Object> entityChanges = new LinkedHashMap<>();
+		for (String field : changes.keySet()) {
+			if (!entity.isReadableProperty(field)) {
+				return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(entityName, "The field " + field + " of " + entityName + " cannot be updated")).body(null);
+			}
+			// only the changed fields are validated, the others are not read
+			Set<ConstraintViolation<T>> violations = VALIDATOR.validateProperty(dto, field);
+			if (!violations.isEmpty()) {
+				ConstraintViolation<T> violation = violations.iterator().next();
+				return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(entityName, "The field " + field + " of " + entityName + " " + violation.getMessage())).body(null);
+			}
+			entityChanges.put(field, entity.getPropertyValue(field));
+		}
+		D result;
+		try {
+			result = service.update(id, entityChanges);
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(entityName, e.getMessage())).body(null);
+		}
+		if (result == null) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+		return ResponseEntity.ok().headers(HeaderUtil.createEntityUpdateAlert(entityName, id)).body(mapper.entityToDto(result));
+	}
+
 	protected Page<D> getAllEntitiesPage(String search, Boolean all, Pageable pageable, HttpServletRequest request) {
 		Page<D> page;
+		Set<String> fields = getRequestedFields(request);
 		if (search != null) {
-			page = service.searchAll(search, pageable);
+			page = service.searchAll(search, pageable, fields);
 		} else {
 			if (all != null && all) {
 				pageable = new PageRequest(0, Integer.MAX_VALUE, pageable.getSort());
 			}
-			page = service.findAll(pageable);
+			page = service.findAll(pageable, fields);
 		}
 		return page;
 	}
@@ -110,10 +175,53 @@ public abstract class AdamaResourceAbstract<D extends DeleteEntityAbstract, T ex
 		return new ResponseEntity<>(overridenDtoList, headers, HttpStatus.OK);
 	}
 
+	protected Slice<D> getAllEntitiesSlice(String search, Pageable pageable, HttpServletRequest request) {
+		Slice<D> slice;
+		Set<String> fields = getRequestedFields(request);
+		if (search != null) {
+			slice = service.searchAllSlice(search, pageable, fields);
+		} else {
+			slice = service.findAllSlice(pageable, fields);
+		}
+		return slice;
+	}
+
+	protected ResponseEntity<?> wrapSlice(HttpServletRequest request, Slice<D> slice, String search, List<T> overridenDtoList) throws URISyntaxException {
+		if (overridenDtoList == null) {
+			overridenDtoList = mapper.entitiesToDtos(slice.getContent());
+		}
+		HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, "" + request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE), Optional.ofNullable(search));
+		return new ResponseEntity<>(overridenDtoList, headers, HttpStatus.OK);
+	}
+
+	protected ResponseEntity<?> wrapKeysetPage(HttpServletRequest request, KeysetPage<D> page, List<T> overridenDtoList) throws URISyntaxException {
+		if (overridenDtoList == null) {
+			overridenDtoList = mapper.entitiesToDtos(page.getContent());
+		}
+		HttpHeaders headers = PaginationUtil.generateKeysetHttpHeaders(page, "" + request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE));
+		return new ResponseEntity<>(overridenDtoList, headers, HttpStatus.OK);
+	}
+
 	@Override
 	@Transactional(readOnly = true)
 	public ResponseEntity<?> getAllEntities(String search, Boolean all, Pageable pageable, HttpServletRequest request) throws URISyntaxException, ExcelException {
 		log.debug("REST request to get a page of {}", pageable);
+		String cursor = request.getParameter(PaginationUtil.CURSOR_PARAMETER);
+		if (cursor != null && search == null && !headerIsExcel(request)) {
+			return wrapKeysetPage(request, service.findAllByCursor(pageable, cursor), null);
+		}
+		if (search == null && all != null && all && headerIsExcel(request) && isExcelStreamed()) {
+			return getExcelResponse(outputStream -> {
+				try {
+					writeExcel(pageable.getSort(), outputStream);
+				} catch (ExcelException e) {
+					throw new IOException(e.getMessage(), e);
+				}
+			});
+		}
+		if (!isCountRequested(request) && (all == null || !all) && !headerIsExcel(request)) {
+			return wrapSlice(request, getAllEntitiesSlice(search, pageable, request), search, null);
+		}
 		Page<D> page = getAllEntitiesPage(search, all, pageable, request);
 		return wrapPage(request, page, null);
 	}
@@ -136,15 +244,29 @@ public abstract class AdamaResourceAbstract<D extends DeleteEntityAbstract, T ex
 	@Override
 	public ResponseEntity<?> updateEntityExcel(MultipartFile file) throws Exception {
 		log.debug("REST request to update or create by excel {} ", entityName);
+		AtomicInteger savedRows = new AtomicInteger();
 		try {
-			List<T> listDto = excelService.readExcel(file.getInputStream(), dtoClass, entityName);
-			List<D> listEntities = mapper.dtosToEntities(listDto);
-			// we save all
-			listEntities.stream().forEach(entity -> service.save(entity));
+			// we save each batch while the file is read, the rows have all been
+			// converted before the first batch
+			excelService.readExcel(file.getInputStream(), dtoClass, entityName, adamaProperties.getExcel().getImportBatchSize(), listDto -> {
+				BulkSaveResult<D> result = service.bulkSave(mapper.dtosToEntities(listDto));
+				// the other rows of a failing batch are saved, they are
+				// counted
+				savedRows.addAndGet((int) (result.getItems().size() - result.getCount(BulkSaveOutcome.FAILED)));
+				result.getItems().stream().filter(item -> BulkSaveOutcome.FAILED.equals(item.getOutcome())).findFirst().ifPresent(item -> {
+					throw item.getError();
+				});
+			});
 			return ResponseEntity.ok().headers(HeaderUtil.createEntityUpdateAlert(entityName, file.getOriginalFilename())).build();
 		} catch (ExcelException | IOException e) {
 			log.error("ERROR REST request to update or create by excel", e);
 			throw e;
+		} catch (RuntimeException e) {
+			// the saved rows stay saved, the error is only logged
+			log.error("ERROR REST request to update or create by excel after {} saved rows", savedRows.get(), e);
+			HttpHeaders headers = HeaderUtil.createFailureAlert(entityName, "Only " + savedRows.get() + " rows have been saved");
+			headers.add(SAVED_ROWS_HEADER, String.valueOf(savedRows.get()));
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).headers(headers).build();
 		}
 	}
 
@@ -176,6 +298,47 @@ public abstract class AdamaResourceAbstract<D extends DeleteEntityAbstract, T ex
 		return excelService.createExcel(entitities, persistentClass.getSimpleName());
 	}
 
+	/**
+	 * Write the excel of all the entities straight to the response, the rows
+	 * are read from a cursor and only a window of them is kept in memory
+	 * 
+	 * @param sort
+	 * @param outputStream
+	 *            the stream of the response
+	 */
+	protected void writeExcel(Sort sort, OutputStream outputStream) throws ExcelException {
+		excelService.writeExcel(() -> service.streamAll(sort).map(mapper::entityToDto), persistentClass.getSimpleName(), outputStream);
+	}
+
+	/**
+	 * Are the excel of all the entities written with
+	 * {@link #writeExcel(Sort, OutputStream)} instead of
+	 * {@link #generateExcel(List)}, false by default
+	 */
+	public Boolean isExcelStreamed() {
+		return false;
+	}
+
+	/**
+	 * The total count can be skipped with the count=false parameter or the
+	 * X-Adama-Count: false header
+	 */
+	public Boolean isCountRequested(HttpServletRequest request) {
+		return !"false".equalsIgnoreCase(request.getParameter(PaginationUtil.COUNT_PARAMETER)) && !"false".equalsIgnoreCase(request.getHeader(PaginationUtil.COUNT_HEADER));
+	}
+
+	/**
+	 * Get the fields requested with fields=name,code, all the fields when the
+	 * parameter is missing
+	 */
+	public Set<String> getRequestedFields(HttpServletRequest request) {
+		String fields = request.getParameter(PaginationUtil.FIELDS_PARAMETER);
+		if (fields == null) {
+			return Collections.emptySet();
+		}
+		return Arrays.stream(fields.split(",")).map(String::trim).filter(field -> !field.isEmpty()).collect(Collectors.toCollection(LinkedHashSet::new));
+	}
+
 	public Boolean headerIsExcel(HttpServletRequest request) {
 		return request.getHeader("Accept").equals("application/vnd.ms-excel");
 	}
@@ -186,4 +349,9 @@ public abstract class AdamaResourceAbstract<D extends DeleteEntityAbstract, T ex
 		return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/vnd.ms-excel"))
 				.header("Content-Disposition", "attachment;filename = " + sdf.format(new Date()) + "_" + entityName + ".xlsx").body(new InputStreamResource(inputStream));
 	}
+
+	protected ResponseEntity<?> getExcelResponse(StreamingResponseBody streamingResponseBody) {
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/vnd.ms-excel"))
+				.header("Content-Disposition", "attachment;filename = " + sdf.format(new Date()) + "_" + entityName + ".xlsx").body(streamingResponseBody);
+	}
 }
@@ -3,6 +3,7 @@ package com.adama.api.web.rest.util.resource.abstr;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
@@ -42,6 +43,12 @@ public abstract class AdamaResourceAbstractWithMapping<D extends DeleteEntityAbs
 		return super.updateEntity(entity, request);
 	}
 
+	@Override
+	@RequestMapping(value = "/{id}", method = RequestMethod.PATCH, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<T> patchEntity(@PathVariable String id, @RequestBody Map<String, Object> changes) {
+		return super.patchEntity(id, changes);
+	}
+
 	@Override
 	@RequestMapping(method = RequestMethod.GET, produces = { MediaType.APPLICATION_JSON_VALUE, "application/vnd.ms-excel" })
 	public ResponseEntity<?> getAllEntities(@RequestParam(required = false) String search, @RequestParam(required = false) Boolean all, Pageable pageable, HttpServletRequest request)
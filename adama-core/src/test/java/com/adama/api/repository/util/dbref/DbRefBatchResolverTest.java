@@ -0,0 +1,89 @@
+package com.adama.api.repository.util.dbref;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+import lombok.Data;
+
+/**
+ * The batch resolver puts the entities it read in the documents in place of
+ * their references, and relies on the converter keeping them as they are
+ */
+public class DbRefBatchResolverTest {
+	private MongoDbFactory mongoDbFactory;
+	private MappingMongoConverter converter;
+
+	@Data
+	@Document(collection = "referenced_entity")
+	public static class ReferencedEntity {
+		@Id
+		private String id;
+		private String name;
+	}
+
+	@Data
+	@Document(collection = "owner_entity")
+	public static class OwnerEntity {
+		@Id
+		private String id;
+		@DBRef
+		private ReferencedEntity reference;
+		@DBRef
+		private List<ReferencedEntity> references;
+	}
+
+	@Before
+	public void setup() {
+		mongoDbFactory = mock(MongoDbFactory.class);
+		converter = new MappingMongoConverter(new DefaultDbRefResolver(mongoDbFactory), new MongoMappingContext());
+		converter.afterPropertiesSet();
+	}
+
+	@Test
+	public void converterKeepsTheResolvedEntityOfAReference() {
+		ReferencedEntity referenced = createReferenced("first");
+		DBObject document = new BasicDBObject("_id", "owner").append("reference", referenced);
+		OwnerEntity owner = converter.read(OwnerEntity.class, document);
+		assertSame(referenced, owner.getReference());
+		// the reference is not read again
+		verifyZeroInteractions(mongoDbFactory);
+	}
+
+	@Test
+	public void converterKeepsTheResolvedEntitiesOfAListOfReferences() {
+		ReferencedEntity first = createReferenced("first");
+		ReferencedEntity second = createReferenced("second");
+		BasicDBList references = new BasicDBList();
+		references.add(first);
+		references.add(second);
+		DBObject document = new BasicDBObject("_id", "owner").append("references", references);
+		OwnerEntity owner = converter.read(OwnerEntity.class, document);
+		assertSame(first, owner.getReferences().get(0));
+		assertSame(second, owner.getReferences().get(1));
+		verifyZeroInteractions(mongoDbFactory);
+	}
+
+	private static ReferencedEntity createReferenced(String id) {
+		ReferencedEntity referenced = new ReferencedEntity();
+		referenced.setId(id);
+		referenced.setName("name " + id);
+		return referenced;
+	}
+}
@@ -0,0 +1,84 @@
+package com.adama.api.repository.util.page;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.mongodb.BasicDBObject;
+
+public class CountCacheTest {
+	@Test
+	public void disabledWithoutTimeToLive() {
+		CountCache cache = new CountCache();
+		cache.put("key", 10, cache.getGeneration());
+		assertFalse(cache.isEnabled());
+		assertFalse(cache.get("key").isPresent());
+	}
+
+	@Test
+	public void useTheSharedTimeToLive() {
+		CountCache cache = new CountCache();
+		CountSettings.setCacheTimeToLiveInMillis(60000);
+		try {
+			cache.put("key", 10, cache.getGeneration());
+			assertEquals(Optional.of(10L), cache.get("key"));
+		} finally {
+			CountSettings.setCacheTimeToLiveInMillis(0);
+		}
+	}
+
+	@Test
+	public void getTheCountUntilItExpires() throws InterruptedException {
+		CountCache cache = new CountCache();
+		cache.setTimeToLiveInMillis(50);
+		cache.put("key", 10, cache.getGeneration());
+		assertEquals(Optional.of(10L), cache.get("key"));
+		Thread.sleep(100);
+		assertFalse(cache.get("key").isPresent());
+	}
+
+	@Test
+	public void invalidateRemovesTheCounts() {
+		CountCache cache = new CountCache();
+		cache.setTimeToLiveInMillis(60000);
+		cache.put("key", 10, cache.getGeneration());
+		cache.invalidate();
+		assertFalse(cache.get("key").isPresent());
+	}
+
+	@Test
+	public void ignoreTheCountStartedBeforeAnInvalidation() {
+		CountCache cache = new CountCache();
+		cache.setTimeToLiveInMillis(60000);
+		long generation = cache.getGeneration();
+		cache.invalidate();
+		cache.put("key", 10, generation);
+		assertFalse(cache.get("key").isPresent());
+		cache.put("key", 11, cache.getGeneration());
+		assertEquals(Optional.of(11L), cache.get("key"));
+	}
+
+	@Test
+	public void keepTheSizeUnderTheMaximum() {
+		CountCache cache = new CountCache();
+		cache.setTimeToLiveInMillis(60000);
+		cache.setMaxSize(2);
+		cache.put("first", 1, cache.getGeneration());
+		cache.put("second", 2, cache.getGeneration());
+		cache.put("third", 3, cache.getGeneration());
+		assertFalse(cache.get("first").isPresent());
+		assertEquals(Optional.of(3L), cache.get("third"));
+	}
+
+	@Test
+	public void keyIgnoresTheOrderOfTheCriteria() {
+		BasicDBObject first = new BasicDBObject("name", "value").append("active", true);
+		BasicDBObject second = new BasicDBObject("active", true).append("name", "value");
+		assertEquals(CountCache.getKey(first, "tenant"), CountCache.getKey(second, "tenant"));
+		assertNotEquals(CountCache.getKey(first, "tenant"), CountCache.getKey(first, "other"));
+	}
+}
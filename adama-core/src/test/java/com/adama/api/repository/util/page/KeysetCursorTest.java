@@ -0,0 +1,54 @@
+package com.adama.api.repository.util.page;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+public class KeysetCursorTest {
+	@Test
+	public void encodeAndDecodeKeepTheValues() {
+		List<Object> values = Arrays.asList("name", 12, 1.5, true, null, "5a1d8f0e2c3b4a0012345678");
+		KeysetCursor cursor = KeysetCursor.decode(new KeysetCursor(values).encode());
+		assertEquals(values, cursor.getValues());
+	}
+
+	@Test
+	public void encodeAndDecodeKeepTheIdAndTheDates() {
+		// the id is the last value of every cursor
+		List<Object> values = Arrays.asList(new Date(1508198400123L), "name", new ObjectId());
+		KeysetCursor cursor = KeysetCursor.decode(new KeysetCursor(values).encode());
+		assertEquals(values, cursor.getValues());
+	}
+
+	@Test
+	public void encodeIsUrlSafe() {
+		String token = new KeysetCursor(Arrays.asList("?&/+=", "\u00e9t\u00e9")).encode();
+		assertEquals(token, token.replaceAll("[^A-Za-z0-9_-]", ""));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decodeRejectsNotBase64() {
+		KeysetCursor.decode("not a cursor!");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decodeRejectsNotJson() {
+		KeysetCursor.decode(encode("[1, 2"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decodeRejectsNotList() {
+		KeysetCursor.decode(encode("{\"name\": 1}"));
+	}
+
+	private static String encode(String json) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+	}
+}
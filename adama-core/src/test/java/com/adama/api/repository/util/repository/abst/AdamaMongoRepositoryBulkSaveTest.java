@@ -0,0 +1,183 @@
+package com.adama.api.repository.util.repository.abst;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.convert.DbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.repository.support.MappingMongoEntityInformation;
+
+import com.adama.api.domain.util.domain.abst.delete.DeleteEntityAbstract;
+import com.adama.api.repository.util.bulk.BulkSaveItem;
+import com.adama.api.repository.util.bulk.BulkSaveOutcome;
+import com.adama.api.repository.util.bulk.BulkSaveResult;
+import com.adama.api.repository.util.repository.impl.AdamaMongoRepositoryImpl;
+import com.adama.api.util.date.JSR310DateConverters.DateToZonedDateTimeConverter;
+import com.adama.api.util.date.JSR310DateConverters.ZonedDateTimeToDateConverter;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteRequestBuilder;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+public class AdamaMongoRepositoryBulkSaveTest {
+	private static final String COLLECTION_NAME = "bulk_entity";
+	private MongoOperations mongoOperations;
+	private DBCollection coll;
+	private BulkWriteOperation bulk;
+	private BulkWriteRequestBuilder requestBuilder;
+	private AdamaMongoRepositoryImpl<BulkEntity, String> repository;
+
+	@Document(collection = COLLECTION_NAME)
+	public static class BulkEntity extends DeleteEntityAbstract {
+		private static final long serialVersionUID = 1L;
+		private String name;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setup() {
+		CustomConversions conversions = new CustomConversions(Arrays.asList(ZonedDateTimeToDateConverter.INSTANCE, DateToZonedDateTimeConverter.INSTANCE));
+		MongoMappingContext mappingContext = new MongoMappingContext();
+		mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+		MappingMongoConverter converter = new MappingMongoConverter(mock(DbRefResolver.class), mappingContext);
+		converter.setCustomConversions(conversions);
+		converter.afterPropertiesSet();
+		mongoOperations = mock(MongoOperations.class);
+		coll = mock(DBCollection.class);
+		bulk = mock(BulkWriteOperation.class);
+		requestBuilder = mock(BulkWriteRequestBuilder.class);
+		when(mongoOperations.getConverter()).thenReturn(converter);
+		when(mongoOperations.getCollection(COLLECTION_NAME)).thenReturn(coll);
+		when(coll.getName()).thenReturn(COLLECTION_NAME);
+		when(coll.initializeUnorderedBulkOperation()).thenReturn(bulk);
+		when(bulk.find(any(DBObject.class))).thenReturn(requestBuilder);
+		MongoPersistentEntity<BulkEntity> persistentEntity = (MongoPersistentEntity<BulkEntity>) mappingContext.getPersistentEntity(BulkEntity.class);
+		repository = new AdamaMongoRepositoryImpl<>(new MappingMongoEntityInformation<>(persistentEntity), mongoOperations);
+	}
+
+	@Test
+	public void saveEachEntityWithTheTemplateByDefault() {
+		BulkEntity newEntity = createEntity(null);
+		BulkEntity existingEntity = createEntity(new ObjectId().toString());
+		BulkEntity failingEntity = createEntity(new ObjectId().toString());
+		IllegalStateException error = new IllegalStateException("listener error");
+		doThrow(error).when(mongoOperations).save(failingEntity, COLLECTION_NAME);
+		BulkSaveResult<BulkEntity> result = repository.bulkSave(Arrays.asList(newEntity, existingEntity, failingEntity));
+		verify(mongoOperations).insert(newEntity, COLLECTION_NAME);
+		verify(mongoOperations).save(existingEntity, COLLECTION_NAME);
+		verify(coll, never()).initializeUnorderedBulkOperation();
+		assertOutcomes(result, BulkSaveOutcome.INSERTED, BulkSaveOutcome.UPDATED, BulkSaveOutcome.FAILED);
+		assertEquals(error, result.getItems().get(2).getError());
+	}
+
+	@Test
+	public void writeMixedChunksOfInsertsAndReplacements() {
+		repository.setBulkWriteEnabled(true);
+		repository.setBulkChunkSize(2);
+		BulkWriteResult firstResult = createWriteResult(1);
+		BulkWriteResult secondResult = createWriteResult(1);
+		when(bulk.execute()).thenReturn(firstResult, secondResult);
+		BulkEntity firstNew = createEntity(null);
+		BulkEntity firstExisting = createEntity(new ObjectId().toString());
+		BulkEntity secondExisting = createEntity(new ObjectId().toString());
+		BulkSaveResult<BulkEntity> result = repository.bulkSave(Arrays.asList(firstNew, firstExisting, secondExisting));
+		verify(bulk, times(2)).execute();
+		ArgumentCaptor<DBObject> insertCaptor = ArgumentCaptor.forClass(DBObject.class);
+		verify(bulk).insert(insertCaptor.capture());
+		verify(requestBuilder, times(2)).replaceOne(any(DBObject.class));
+		// the id and the audit fields of the new entity are set before the
+		// write
+		assertNotNull(firstNew.getId());
+		assertEquals(new ObjectId(firstNew.getId()), insertCaptor.getValue().get("_id"));
+		assertEquals(Boolean.TRUE, insertCaptor.getValue().get(DeleteEntityAbstract.ACTIVE_FIELD_NAME));
+		assertNotNull(firstNew.getCreatedBy());
+		assertOutcomes(result, BulkSaveOutcome.INSERTED, BulkSaveOutcome.UPDATED, BulkSaveOutcome.UPDATED);
+		assertFalse(result.hasFailures());
+		verify(coll, never()).findOne(any(DBObject.class), any(DBObject.class));
+	}
+
+	@Test
+	public void failTheReplacementOfAMissingEntity() {
+		repository.setBulkWriteEnabled(true);
+		BulkWriteResult writeResult = createWriteResult(1);
+		when(bulk.execute()).thenReturn(writeResult);
+		BulkEntity foundEntity = createEntity(new ObjectId().toString());
+		BulkEntity missingEntity = createEntity(new ObjectId().toString());
+		// only the missing entity is not found again
+		when(coll.findOne(any(DBObject.class), any(DBObject.class))).thenAnswer(invocation -> {
+			DBObject filter = (DBObject) invocation.getArguments()[0];
+			return new ObjectId(missingEntity.getId()).equals(filter.get("_id")) ? null : filter;
+		});
+		BulkSaveResult<BulkEntity> result = repository.bulkSave(Arrays.asList(foundEntity, missingEntity));
+		assertOutcomes(result, BulkSaveOutcome.UPDATED, BulkSaveOutcome.FAILED);
+		BulkSaveItem<BulkEntity> failedItem = result.getItems().get(1);
+		assertTrue(failedItem.getError() instanceof IllegalArgumentException);
+		assertTrue(failedItem.getError().getMessage().contains(missingEntity.getId()));
+		assertNull(result.getItems().get(0).getError());
+		assertEquals(1, result.getCount(BulkSaveOutcome.FAILED));
+		// a missing entity is not inserted by the replacement
+		verify(bulk, never()).insert(any(DBObject.class));
+		verify(requestBuilder, never()).upsert();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void saveListThrowsTheFirstFailure() {
+		repository.setBulkWriteEnabled(true);
+		BulkWriteResult writeResult = createWriteResult(0);
+		when(bulk.execute()).thenReturn(writeResult);
+		repository.save(Arrays.asList(createEntity(new ObjectId().toString())));
+	}
+
+	private static BulkEntity createEntity(String id) {
+		BulkEntity entity = new BulkEntity();
+		entity.setId(id);
+		entity.setName("name");
+		return entity;
+	}
+
+	private static BulkWriteResult createWriteResult(int matchedCount) {
+		BulkWriteResult writeResult = mock(BulkWriteResult.class);
+		when(writeResult.isAcknowledged()).thenReturn(true);
+		when(writeResult.getMatchedCount()).thenReturn(matchedCount);
+		return writeResult;
+	}
+
+	private static void assertOutcomes(BulkSaveResult<BulkEntity> result, BulkSaveOutcome... outcomes) {
+		List<BulkSaveItem<BulkEntity>> items = result.getItems();
+		assertEquals(outcomes.length, items.size());
+		for (int i = 0; i < outcomes.length; i++) {
+			assertEquals("outcome of the entity " + i, outcomes[i], items.get(i).getOutcome());
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package com.adama.api.repository.util.repository.abst;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.convert.DbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.repository.support.MappingMongoEntityInformation;
+
+import com.adama.api.domain.util.domain.abst.audit.AuditingEntityAbstract;
+import com.adama.api.domain.util.domain.abst.delete.DeleteEntityAbstract;
+import com.adama.api.domain.util.domain.annotation.DirtyTracked;
+import com.adama.api.repository.util.dirty.EntitySnapshots;
+import com.adama.api.repository.util.repository.impl.AdamaMongoRepositoryImpl;
+import com.adama.api.repository.util.scope.RequestScope;
+import com.adama.api.util.date.JSR310DateConverters.DateToZonedDateTimeConverter;
+import com.adama.api.util.date.JSR310DateConverters.ZonedDateTimeToDateConverter;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.WriteResult;
+
+public class AdamaMongoRepositoryDirtyTrackingTest {
+	private static final String COLLECTION_NAME = "dirty_entity";
+	private MappingMongoConverter converter;
+	private MongoOperations mongoOperations;
+	private DBCollection coll;
+	private AdamaMongoRepositoryImpl<DirtyEntity, String> repository;
+	private String trackedId;
+
+	@DirtyTracked
+	@Document(collection = COLLECTION_NAME)
+	public static class DirtyEntity extends DeleteEntityAbstract {
+		private static final long serialVersionUID = 1L;
+		private String name;
+		private String description;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+
+		public void setDescription(String description) {
+			this.description = description;
+		}
+	}
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setup() {
+		CustomConversions conversions = new CustomConversions(Arrays.asList(ZonedDateTimeToDateConverter.INSTANCE, DateToZonedDateTimeConverter.INSTANCE));
+		MongoMappingContext mappingContext = new MongoMappingContext();
+		mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+		converter = new MappingMongoConverter(mock(DbRefResolver.class), mappingContext);
+		converter.setCustomConversions(conversions);
+		converter.afterPropertiesSet();
+		mongoOperations = mock(MongoOperations.class);
+		coll = mock(DBCollection.class);
+		when(mongoOperations.getConverter()).thenReturn(converter);
+		when(mongoOperations.getCollection(COLLECTION_NAME)).thenReturn(coll);
+		when(coll.getName()).thenReturn(COLLECTION_NAME);
+		MongoPersistentEntity<DirtyEntity> persistentEntity = (MongoPersistentEntity<DirtyEntity>) mappingContext.getPersistentEntity(DirtyEntity.class);
+		repository = new AdamaMongoRepositoryImpl<>(new MappingMongoEntityInformation<>(persistentEntity), mongoOperations);
+		RequestScope.open();
+	}
+
+	@After
+	public void tearDown() {
+		RequestScope.close();
+	}
+
+	@Test
+	public void setOnlyTheChangedFields() {
+		DirtyEntity entity = createTrackedEntity();
+		entity.setName("new name");
+		mockUpdatedCount(1);
+		repository.save(entity);
+		DBObject update = captureUpdate();
+		DBObject set = (DBObject) update.get("$set");
+		assertEquals("new name", set.get("name"));
+		assertFalse(set.containsField("description"));
+		assertTrue(set.containsField(AuditingEntityAbstract.LASTMODIFIEDBY_FIELD_NAME));
+		assertTrue(set.containsField(AuditingEntityAbstract.LASTMODIFIEDDATE_FIELD_NAME));
+		assertNull(update.get("$unset"));
+		verify(mongoOperations, never()).save(any(), anyString());
+	}
+
+	@Test
+	public void unsetTheRemovedFields() {
+		DirtyEntity entity = createTrackedEntity();
+		entity.setDescription(null);
+		mockUpdatedCount(1);
+		repository.save(entity);
+		DBObject update = captureUpdate();
+		assertEquals(new BasicDBObject("description", ""), update.get("$unset"));
+		DBObject set = (DBObject) update.get("$set");
+		assertEquals(2, set.keySet().size());
+		assertTrue(set.containsField(AuditingEntityAbstract.LASTMODIFIEDBY_FIELD_NAME));
+		assertTrue(set.containsField(AuditingEntityAbstract.LASTMODIFIEDDATE_FIELD_NAME));
+	}
+
+	@Test
+	public void writeNothingWhenNothingChanged() {
+		DirtyEntity entity = createTrackedEntity();
+		ZonedDateTime lastModifiedDate = entity.getLastModifiedDate();
+		repository.save(entity);
+		verify(coll, never()).update(any(DBObject.class), any(DBObject.class));
+		verify(mongoOperations, never()).save(any(), anyString());
+		assertSame(lastModifiedDate, entity.getLastModifiedDate());
+	}
+
+	@Test
+	public void saveInFullWhenTheDocumentIsMissing() {
+		DirtyEntity entity = createTrackedEntity();
+		entity.setName("new name");
+		mockUpdatedCount(0);
+		repository.save(entity);
+		verify(mongoOperations).save(entity, COLLECTION_NAME);
+	}
+
+	@Test
+	public void saveInFullAnotherInstance() {
+		createTrackedEntity();
+		DirtyEntity entity = new DirtyEntity();
+		entity.setId(trackedId);
+		entity.setName("new name");
+		repository.save(entity);
+		verify(coll, never()).update(any(DBObject.class), any(DBObject.class));
+		verify(mongoOperations).save(entity, COLLECTION_NAME);
+	}
+
+	/**
+	 * An entity as read by the repository, with the snapshot of its document
+	 */
+	private DirtyEntity createTrackedEntity() {
+		trackedId = new ObjectId().toString();
+		DirtyEntity entity = new DirtyEntity();
+		entity.setId(trackedId);
+		entity.setActive(true);
+		entity.setName("name");
+		entity.setDescription("description");
+		DBObject document = new BasicDBObject();
+		converter.write(entity, document);
+		EntitySnapshots.track(COLLECTION_NAME, new ObjectId(trackedId), entity, document);
+		return entity;
+	}
+
+	private void mockUpdatedCount(int count) {
+		WriteResult writeResult = mock(WriteResult.class);
+		when(writeResult.getN()).thenReturn(count);
+		when(coll.update(any(DBObject.class), any(DBObject.class))).thenReturn(writeResult);
+	}
+
+	private DBObject captureUpdate() {
+		ArgumentCaptor<DBObject> queryCaptor = ArgumentCaptor.forClass(DBObject.class);
+		ArgumentCaptor<DBObject> updateCaptor = ArgumentCaptor.forClass(DBObject.class);
+		verify(coll).update(queryCaptor.capture(), updateCaptor.capture());
+		assertEquals(new BasicDBObject("_id", new ObjectId(trackedId)), queryCaptor.getValue());
+		return updateCaptor.getValue();
+	}
+}